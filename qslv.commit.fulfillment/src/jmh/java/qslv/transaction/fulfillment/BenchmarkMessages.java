@@ -0,0 +1,38 @@
+package qslv.transaction.fulfillment;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.resource.TransactionResource;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Representative request and response shared by the benchmarks.
+ */
+final class BenchmarkMessages {
+	private BenchmarkMessages() {
+	}
+
+	static TraceableMessage<CommitReservationRequest> request() {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setBusinessTaxonomyId("38923748273482");
+		message.setCorrelationId(UUID.randomUUID().toString());
+		message.setMessageCreationTime(LocalDateTime.now());
+		message.setProducerAit("2345");
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber("23874923749823");
+		message.getPayload().setRequestUuid(UUID.randomUUID());
+		message.getPayload().setReservationUuid(UUID.randomUUID());
+		message.getPayload().setTransactionMetaDataJson("{\"merchant\":\"benchmark\",\"terminal\":\"0042\"}");
+		return message;
+	}
+
+	static CommitReservationResponse response() {
+		CommitReservationResponse response = new CommitReservationResponse(CommitReservationResponse.SUCCESS, new TransactionResource());
+		response.getResource().setAccountNumber("23874923749823");
+		response.getResource().setDebitCardNumber("7823478239467");
+		return response;
+	}
+}
@@ -0,0 +1,101 @@
+package qslv.transaction.fulfillment;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.support.Acknowledgment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * FulfillmentControllerService.fulfillCommit with the REST call and Kafka produce stubbed out, so the
+ * measurement is validation, reply construction, metrics and logging only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FulfillCommitBenchmark {
+	private FulfillmentControllerService controller;
+	private TraceableMessage<CommitReservationRequest> request;
+	private CommitReservationResponse response;
+	private Acknowledgment acknowledgment = () -> {};
+
+	@Setup
+	public void setup() {
+		ConfigProperties config = new ConfigProperties();
+		config.setAitid("12345");
+		config.setCommitCacheSize(0);
+
+		response = BenchmarkMessages.response();
+		request = BenchmarkMessages.request();
+
+		FulfillmentMetrics metrics = new FulfillmentMetrics();
+		metrics.setRegistry(new SimpleMeterRegistry());
+		CommitResponseCache cache = new CommitResponseCache();
+		cache.setConfig(config);
+		cache.init();
+		CommitReservationBatcher batcher = new CommitReservationBatcher();
+		batcher.setConfig(config);
+
+		controller = new FulfillmentControllerService();
+		controller.setConfig(config);
+		controller.setTransactionDao(new StubTransactionDao(response));
+		controller.setKafkaDao(new StubKafkaProducerDao());
+		controller.setCommitReservationBatcher(batcher);
+		controller.setCommitResponseCache(cache);
+		ReplyJournal replyJournal = new ReplyJournal();
+		replyJournal.setConfig(config);
+		controller.setReplyJournal(replyJournal);
+		PriorityLanes priorityLanes = new PriorityLanes();
+		priorityLanes.setConfig(config);
+		priorityLanes.init();
+		controller.setPriorityLanes(priorityLanes);
+		controller.setMetrics(metrics);
+		controller.setListenerDrain(new ListenerDrain());
+	}
+
+	@Benchmark
+	public void fulfillCommit() {
+		controller.fulfillCommit(request, acknowledgment);
+	}
+
+	@Benchmark
+	public void buildReply(Blackhole blackhole) {
+		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> traceableResponse = 
+				new TraceableMessage<>(request, new ResponseMessage<CommitReservationRequest,CommitReservationResponse>(request.getPayload()));
+		traceableResponse.getPayload().setResponse(response);
+		traceableResponse.setMessageCompletionTime(LocalDateTime.now());
+		blackhole.consume(traceableResponse);
+	}
+
+	static class StubTransactionDao extends TransactionDao {
+		private final CommitReservationResponse response;
+
+		StubTransactionDao(CommitReservationResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		public CommitReservationResponse commitReservation(TraceableMessage<?> message, CommitReservationRequest request) {
+			return response;
+		}
+	}
+
+	static class StubKafkaProducerDao extends KafkaProducerDao {
+		@Override
+		public void produceCommit(TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> message) {
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package qslv.transaction.fulfillment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/*
+ * One poll's worth of commits through KeyOrderedExecutor, each task blocking for ioMillis as the REST call and
+ * produce would. Compares platform and virtual thread lanes at increasing lane counts. Virtual threads need the
+ * benchmark to run on JDK 21 or later, on older JDKs both modes use platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KeyOrderedExecutorBenchmark {
+	@Param({"false", "true"})
+	public boolean virtual;
+	@Param({"50", "500", "5000"})
+	public int lanes;
+	@Param({"5000"})
+	public int records;
+	@Param({"5"})
+	public long ioMillis;
+
+	private KeyOrderedExecutor executor;
+	private String[] keys;
+
+	@Setup
+	public void setup() {
+		ConfigProperties config = new ConfigProperties();
+		config.setKafkaKeyedConcurrency(lanes);
+		config.setKafkaVirtualThreads(virtual);
+		executor = new KeyOrderedExecutor();
+		executor.setConfig(config);
+		executor.init();
+		keys = new String[records];
+		for (int ii = 0; ii < records; ii++) {
+			keys[ii] = "account-" + ii;
+		}
+	}
+
+	@TearDown
+	public void teardown() throws InterruptedException {
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public int poll() throws InterruptedException, ExecutionException {
+		List<Future<Integer>> results = new ArrayList<>(records);
+		for (int ii = 0; ii < records; ii++) {
+			int record = ii;
+			results.add(executor.submit(keys[ii], () -> {
+				Thread.sleep(ioMillis);
+				return record;
+			}));
+		}
+		int sum = 0;
+		for (Future<Integer> result : results) {
+			sum += result.get();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,66 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Kafka value serialization of a commit request and its reply, configured the same way as the listener and
+ * producer factories. Run with -prof gc and compare gc.alloc.rate.norm for the bytes allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+	private static final String TOPIC = "commit.fulfillment.request.queue";
+
+	private TraceableMessageSerializer<TraceableMessage<CommitReservationRequest>> serializer;
+	private TraceableMessageDeserializer<TraceableMessage<CommitReservationRequest>> deserializer;
+	private TraceableMessageSerializer<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> replySerializer;
+	private TraceableMessage<CommitReservationRequest> request;
+	private TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> reply;
+	private byte[] serialized;
+
+	@Setup
+	public void setup() {
+		serializer = new TraceableMessageSerializer<>(MessageTypes.COMMIT_REQUEST);
+		deserializer = new TraceableMessageDeserializer<>(MessageTypes.COMMIT_REQUEST);
+		replySerializer = new TraceableMessageSerializer<>(MessageTypes.COMMIT_REPLY, MessageTypes.COMMIT_REQUEST);
+
+		request = BenchmarkMessages.request();
+		serialized = serializer.serialize(TOPIC, request);
+		reply = new TraceableMessage<>(request, new ResponseMessage<CommitReservationRequest,CommitReservationResponse>(request.getPayload()));
+		reply.getPayload().setResponse(BenchmarkMessages.response());
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		return serializer.serialize(TOPIC, request);
+	}
+
+	@Benchmark
+	public TraceableMessage<CommitReservationRequest> deserialize() {
+		return deserializer.deserialize(TOPIC, serialized);
+	}
+
+	@Benchmark
+	public byte[] serializeReply() {
+		return replySerializer.serialize(TOPIC, reply);
+	}
+
+	@Benchmark
+	public TraceableMessage<CommitReservationRequest> roundTrip() {
+		return deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, request));
+	}
+}
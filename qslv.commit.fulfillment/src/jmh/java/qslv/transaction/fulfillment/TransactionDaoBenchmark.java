@@ -0,0 +1,37 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransactionDaoBenchmark {
+	private TransactionDao transactionDao;
+	private TraceableMessage<CommitReservationRequest> request;
+
+	@Setup
+	public void setup() {
+		ConfigProperties config = new ConfigProperties();
+		config.setAitid("12345");
+		transactionDao = new TransactionDao();
+		transactionDao.setConfig(config);
+		request = BenchmarkMessages.request();
+	}
+
+	@Benchmark
+	public HttpHeaders buildHeaders() {
+		return transactionDao.buildHeaders(request);
+	}
+}
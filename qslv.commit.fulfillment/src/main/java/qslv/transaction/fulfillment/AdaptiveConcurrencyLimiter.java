@@ -0,0 +1,151 @@
+package qslv.transaction.fulfillment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * AIMD limit on in-flight calls to the commit service. A call answered within restLimitLatency ms grows the
+ * limit by about one per limit's worth of calls; a slower call, timeout or 5xx cuts it to restLimitBackoff
+ * percent. Callers over the limit wait up to restConnectionRequestTimeout ms for a slot. Saturation listeners
+ * are told when the limit is reached and again once in-flight calls fall to restLimitResume percent of the
+ * limit, so a limiter running at its limit does not flip them on every call. Waiting is on a lock condition rather than
+ * a monitor so a virtual thread caller parks without pinning its carrier.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter implements MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+	@Autowired
+	private ConfigProperties config;
+
+	private double limit;
+	private int inFlight = 0;
+	private boolean saturated = false;
+	private final List<Consumer<Boolean>> saturationListeners = new CopyOnWriteArrayList<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition slotFreed = lock.newCondition();
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	@PostConstruct
+	public void init() {
+		limit = config.getRestLimitInitial();
+	}
+
+	public boolean isEnabled() {
+		return config.isRestLimitEnabled();
+	}
+
+	public void onSaturation(Consumer<Boolean> listener) {
+		saturationListeners.add(listener);
+	}
+
+	public void acquire() throws TransientDataAccessResourceException {
+		lock.lock();
+		try {
+			long wait = TimeUnit.MILLISECONDS.toNanos(config.getRestConnectionRequestTimeout());
+			while ( inFlight >= (int) limit ) {
+				if ( wait <= 0 ) {
+					throw new TransientDataAccessResourceException(String.format("Concurrency limit %d reached.", (int) limit));
+				}
+				wait = slotFreed.awaitNanos(wait);
+			}
+			inFlight++;
+			updateSaturation();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new TransientDataAccessResourceException("Interrupted waiting for concurrency limit.", ex);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// For callers that must not wait for a slot, such as the reactive client. False when the limit is reached.
+	public boolean tryAcquire() {
+		lock.lock();
+		try {
+			if ( inFlight >= (int) limit ) {
+				return false;
+			}
+			inFlight++;
+			updateSaturation();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void release(long elapsedMillis, boolean dropped) {
+		lock.lock();
+		try {
+			if ( dropped || elapsedMillis > config.getRestLimitLatency() ) {
+				limit = Math.max(config.getRestLimitMin(), limit * config.getRestLimitBackoff() / 100.0);
+				log.debug("Concurrency limit decreased to {}. {} ms, dropped {}", (int) limit, elapsedMillis, dropped);
+			} else if ( inFlight * 2 >= limit ) {
+				// Only grow a limit that is being used, an idle service says nothing about its capacity.
+				limit = Math.min(config.getRestLimitMax(), limit + 1.0 / limit);
+			}
+			inFlight--;
+			updateSaturation();
+			slotFreed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Called holding the lock.
+	private void updateSaturation() {
+		boolean nowSaturated = saturated ? inFlight > (int) limit * config.getRestLimitResume() / 100
+				: inFlight >= (int) limit;
+		if ( nowSaturated != saturated ) {
+			saturated = nowSaturated;
+			for (Consumer<Boolean> listener : saturationListeners) {
+				listener.accept(saturated);
+			}
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("qslv.rest.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+			.description("Adaptive limit on in-flight commit calls").register(registry);
+		Gauge.builder("qslv.rest.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+			.description("In-flight commit calls").register(registry);
+	}
+}
@@ -0,0 +1,152 @@
+package qslv.transaction.fulfillment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Holds the listeners back while the commit service or the reply topic cannot keep up. Every
+ * backpressureInterval ms it looks at the commit service calls completed since the last look and at the reply
+ * producer's buffer. Pressure starts when the error rate, the mean call time or the buffer use goes over its
+ * pause threshold, and ends only after backpressureResumeSamples looks in a row with all three under their
+ * lower resume thresholds. Fewer than backpressureMinCalls calls say nothing about the service, which is the
+ * case while paused, so resuming then rests on the buffer alone. Pressure listeners are told on each change.
+ */
+@Component
+public class BackpressureController implements MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(BackpressureController.class);
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private MeterRegistry registry;
+	@Autowired
+	private KafkaProducerDao kafkaDao;
+
+	private final List<Consumer<Boolean>> pressureListeners = new CopyOnWriteArrayList<>();
+	private ScheduledExecutorService sampler;
+	private volatile boolean pressure = false;
+	private int healthySamples = 0;
+	private long lastCalls = 0L;
+	private long lastFailures = 0L;
+	private double lastTime = 0.0;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setRegistry(MeterRegistry registry) {
+		this.registry = registry;
+	}
+	public void setKafkaDao(KafkaProducerDao kafkaDao) {
+		this.kafkaDao = kafkaDao;
+	}
+
+	@PostConstruct
+	public void init() {
+		if ( false == config.isBackpressureEnabled() ) {
+			return;
+		}
+		sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "backpressure");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sampler.scheduleWithFixedDelay(this::sample, config.getBackpressureInterval(),
+				config.getBackpressureInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if ( sampler != null ) {
+			sampler.shutdownNow();
+		}
+	}
+
+	public void onPressure(Consumer<Boolean> listener) {
+		pressureListeners.add(listener);
+	}
+
+	public boolean isPressure() {
+		return pressure;
+	}
+
+	public synchronized void sample() {
+		try {
+			long calls = 0L;
+			long failures = 0L;
+			double time = 0.0;
+			for (Timer timer : registry.find("qslv.fulfillment.rest").timers()) {
+				String outcome = timer.getId().getTag("outcome");
+				if ( FulfillmentMetrics.REJECTED.equals(outcome) ) {
+					continue;
+				}
+				calls += timer.count();
+				time += timer.totalTime(TimeUnit.MILLISECONDS);
+				if ( FulfillmentMetrics.FAILURE.equals(outcome) ) {
+					failures += timer.count();
+				}
+			}
+			long intervalCalls = calls - lastCalls;
+			long intervalFailures = failures - lastFailures;
+			double intervalTime = time - lastTime;
+			lastCalls = calls;
+			lastFailures = failures;
+			lastTime = time;
+
+			double buffer = kafkaDao.bufferUsage();
+			boolean overloaded = buffer >= config.getBackpressureBufferPause();
+			boolean healthy = buffer < config.getBackpressureBufferResume();
+			if ( intervalCalls >= config.getBackpressureMinCalls() ) {
+				double errorRate = 100.0 * intervalFailures / intervalCalls;
+				double latency = intervalTime / intervalCalls;
+				overloaded = overloaded || errorRate >= config.getBackpressureErrorRatePause()
+						|| latency >= config.getBackpressureLatencyPause();
+				healthy = healthy && errorRate < config.getBackpressureErrorRateResume()
+						&& latency < config.getBackpressureLatencyResume();
+				log.debug("Backpressure sample. calls={} errorRate={} latency={} buffer={}", intervalCalls, errorRate, latency, buffer);
+			}
+			update(overloaded, healthy, buffer);
+		} catch (RuntimeException ex) {
+			log.warn("Backpressure sample failed. {}", ex.getLocalizedMessage());
+		}
+	}
+
+	private void update(boolean overloaded, boolean healthy, double buffer) {
+		healthySamples = healthy ? healthySamples + 1 : 0;
+		if ( false == pressure && overloaded ) {
+			pressure = true;
+			log.warn("Downstream backpressure on. Reply buffer {}% used.", Math.round(buffer));
+		} else if ( pressure && healthySamples >= config.getBackpressureResumeSamples() ) {
+			pressure = false;
+			log.warn("Downstream backpressure off.");
+		} else {
+			return;
+		}
+		for (Consumer<Boolean> listener : pressureListeners) {
+			listener.accept(pressure);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("qslv.fulfillment.backpressure", this, controller -> controller.isPressure() ? 1.0 : 0.0)
+			.description("1 while listeners are paused for downstream backpressure")
+			.register(registry);
+	}
+}
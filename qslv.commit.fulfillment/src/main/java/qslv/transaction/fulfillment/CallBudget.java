@@ -0,0 +1,34 @@
+package qslv.transaction.fulfillment;
+
+/*
+ * Token bucket holding extra calls, hedges or retries, to a share of the ordinary ones. Each ordinary call
+ * deposits ratio of a token and each extra call withdraws a whole one, so over time extra calls stay under
+ * ratio of the ordinary ones. At most maxTokens are saved up for a burst.
+ */
+public class CallBudget {
+	private final double ratio;
+	private final double maxTokens;
+	private double tokens;
+
+	public CallBudget(double ratio, double maxTokens) {
+		this.ratio = ratio;
+		this.maxTokens = maxTokens;
+		this.tokens = maxTokens;
+	}
+
+	public synchronized void deposit() {
+		tokens = Math.min(maxTokens, tokens + ratio);
+	}
+
+	public synchronized boolean tryWithdraw() {
+		if ( tokens < 1.0 ) {
+			return false;
+		}
+		tokens -= 1.0;
+		return true;
+	}
+
+	public synchronized double getTokens() {
+		return tokens;
+	}
+}
@@ -0,0 +1,194 @@
+package qslv.transaction.fulfillment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Repository;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Accumulates concurrent commits into one call to the bulk CommitReservation endpoint. A commit arriving while
+ * no bulk call is in flight is sent at once, so a lone caller waits for nothing but its own call. Commits
+ * arriving behind a call in flight are batched and sent when it completes, when the batch reaches restBulkSize,
+ * or restBulkWindow ms after its first commit arrived, whichever comes first. Each caller gets back its own
+ * response, or its own exception when that item failed.
+ */
+@Repository
+public class CommitReservationBatcher {
+	private static final Logger log = LoggerFactory.getLogger(CommitReservationBatcher.class);
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private TransactionDao transactionDao;
+
+	private ScheduledExecutorService windowScheduler;
+	private List<PendingCommit> pending = new ArrayList<>();
+	private int sending = 0;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setTransactionDao(TransactionDao transactionDao) {
+		this.transactionDao = transactionDao;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (isEnabled()) {
+			windowScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "bulk-commit-window");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (windowScheduler != null) {
+			windowScheduler.shutdown();
+			send(drain());
+		}
+	}
+
+	public boolean isEnabled() {
+		return config.getRestBulkSize() > 1;
+	}
+
+	/*
+	 * Blocks until the batch holding this commit has been answered.
+	 */
+	public CommitReservationResponse commitReservation(final TraceableMessage<CommitReservationRequest> message) {
+		log.trace("commitReservation ENTRY");
+		try {
+			CommitReservationResponse response = submit(message).get();
+			log.trace("commitReservation EXIT");
+			return response;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new TransientDataAccessResourceException("Interrupted waiting for bulk commit.", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new NonTransientDataAccessResourceException(ex.getCause().getLocalizedMessage(), ex.getCause());
+		}
+	}
+
+	public CompletableFuture<CommitReservationResponse> submit(final TraceableMessage<CommitReservationRequest> message) {
+		PendingCommit commit = new PendingCommit(message);
+		List<PendingCommit> full = null;
+		synchronized (this) {
+			pending.add(commit);
+			if (pending.size() >= config.getRestBulkSize() || sending == 0) {
+				full = drain();
+			} else if (pending.size() == 1) {
+				List<PendingCommit> window = pending;
+				windowScheduler.schedule(() -> sendWindow(window), config.getRestBulkWindow(), TimeUnit.MILLISECONDS);
+			}
+		}
+		if (full != null) {
+			send(full);
+		}
+		return commit.response;
+	}
+
+	private void sendWindow(List<PendingCommit> window) {
+		List<PendingCommit> expired = null;
+		synchronized (this) {
+			// The batch may already have been sent because it filled up.
+			if (window == pending) {
+				expired = drain();
+			}
+		}
+		if (expired != null) {
+			send(expired);
+		}
+	}
+
+	// Counts the batch as in flight until send is done with it.
+	private synchronized List<PendingCommit> drain() {
+		List<PendingCommit> batch = pending;
+		pending = new ArrayList<>();
+		if (false == batch.isEmpty()) {
+			sending++;
+		}
+		return batch;
+	}
+
+	private void send(List<PendingCommit> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			sendBatch(batch);
+		} finally {
+			List<PendingCommit> waiting = null;
+			synchronized (this) {
+				sending--;
+				if (sending == 0 && false == pending.isEmpty()) {
+					waiting = pending;
+				}
+			}
+			// Commits that queued up behind this call go out now rather than at the end of their window.
+			if (waiting != null && false == windowScheduler.isShutdown()) {
+				List<PendingCommit> window = waiting;
+				windowScheduler.execute(() -> sendWindow(window));
+			}
+		}
+	}
+
+	private void sendBatch(List<PendingCommit> batch) {
+		log.debug("Sending bulk commit of {} reservations.", batch.size());
+
+		List<TraceableMessage<CommitReservationRequest>> messages = new ArrayList<>(batch.size());
+		for (PendingCommit commit : batch) {
+			messages.add(commit.message);
+		}
+
+		List<CommitReservationResponse> responses;
+		try {
+			responses = transactionDao.commitReservations(messages);
+		} catch (RuntimeException ex) {
+			for (PendingCommit commit : batch) {
+				commit.response.completeExceptionally(ex);
+			}
+			return;
+		}
+
+		for (int ii = 0; ii < batch.size(); ii++) {
+			try {
+				transactionDao.verifyCommitted(config.getCommitReservationBulkUrl(), responses.get(ii));
+				batch.get(ii).response.complete(responses.get(ii));
+			} catch (RuntimeException ex) {
+				batch.get(ii).response.completeExceptionally(ex);
+			}
+		}
+	}
+
+	private static class PendingCommit {
+		final TraceableMessage<CommitReservationRequest> message;
+		final CompletableFuture<CommitReservationResponse> response = new CompletableFuture<>();
+
+		PendingCommit(TraceableMessage<CommitReservationRequest> message) {
+			this.message = message;
+		}
+	}
+}
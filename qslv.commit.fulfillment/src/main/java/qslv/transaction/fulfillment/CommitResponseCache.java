@@ -0,0 +1,68 @@
+package qslv.transaction.fulfillment;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Recently committed reservations by request UUID. Kafka redelivers a request after a nack or rebalance, and
+ * the reply can then be rebuilt from here instead of posting the same commit again. Size bounded with
+ * W-TinyLFU eviction and expired after commitCacheTtl ms. A commitCacheSize of 0 disables the cache.
+ */
+@Component
+public class CommitResponseCache implements MeterBinder {
+
+	@Autowired
+	private ConfigProperties config;
+
+	private Cache<UUID, CommitReservationResponse> cache;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (config.getCommitCacheSize() > 0) {
+			cache = Caffeine.newBuilder()
+					.maximumSize(config.getCommitCacheSize())
+					.expireAfterWrite(config.getCommitCacheTtl(), TimeUnit.MILLISECONDS)
+					.recordStats()
+					.build();
+		}
+	}
+
+	public CommitReservationResponse get(UUID requestUuid) {
+		return cache == null ? null : cache.getIfPresent(requestUuid);
+	}
+
+	public void put(UUID requestUuid, CommitReservationResponse response) {
+		if (cache != null) {
+			cache.put(requestUuid, response);
+		}
+	}
+
+	public CacheStats stats() {
+		return cache == null ? CacheStats.empty() : cache.stats();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		if (cache != null) {
+			CaffeineCacheMetrics.monitor(registry, cache, "commitResponseCache");
+		}
+	}
+}
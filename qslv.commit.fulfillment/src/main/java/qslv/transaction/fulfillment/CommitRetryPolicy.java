@@ -0,0 +1,55 @@
+package qslv.transaction.fulfillment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/*
+ * Retries only failures another attempt can cure: connect and read timeouts or other I/O errors, 429 and
+ * 502/503/504. Other statuses, and the concurrency limit refusing a call, fail at once. Each retry also takes
+ * a token from the shared RetryBudget; without one the last failure is thrown.
+ */
+public class CommitRetryPolicy extends SimpleRetryPolicy {
+	private static final long serialVersionUID = 1L;
+	private static final String BUDGET_EXHAUSTED = "qslv.retry.budget.exhausted";
+
+	private final transient RetryBudget retryBudget;
+
+	public CommitRetryPolicy(int maxAttempts, RetryBudget retryBudget) {
+		super(maxAttempts);
+		this.retryBudget = retryBudget;
+	}
+
+	public static boolean isRetryable(Throwable ex) {
+		if ( ex instanceof ResourceAccessException ) {
+			return true;
+		}
+		if ( ex instanceof HttpStatusCodeException ) {
+			HttpStatus status = HttpStatus.resolve(((HttpStatusCodeException) ex).getRawStatusCode());
+			return status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.BAD_GATEWAY
+					|| status == HttpStatus.SERVICE_UNAVAILABLE || status == HttpStatus.GATEWAY_TIMEOUT;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean canRetry(RetryContext context) {
+		Throwable ex = context.getLastThrowable();
+		if ( ex == null ) {
+			return true;
+		}
+		return isRetryable(ex) && context.getRetryCount() < getMaxAttempts()
+				&& false == context.hasAttribute(BUDGET_EXHAUSTED);
+	}
+
+	// The template asks canRetry more than once per failure, so the token is taken here.
+	@Override
+	public void registerThrowable(RetryContext context, Throwable ex) {
+		super.registerThrowable(context, ex);
+		if ( isRetryable(ex) && context.getRetryCount() < getMaxAttempts() && false == retryBudget.tryWithdraw() ) {
+			context.setAttribute(BUDGET_EXHAUSTED, true);
+		}
+	}
+}
@@ -1,5 +1,11 @@
 package qslv.transaction.fulfillment;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,17 +18,82 @@ public class ConfigProperties {
 
 	private String aitid;
 	private String commitReservationUrl;
+	private String commitReservationBulkUrl;
+	private int restBulkSize = 1;
+	private int restBulkWindow = 10;
 	private int restConnectionRequestTimeout = 1000;
 	private int restConnectTimeout = 1000;
 	private int restTimeout = 1000;
 	private int restAttempts = 3;
 	private int restBackoffDelay = 100;
 	private int restBackoffDelayMax = 500; 
+	private int restRetryBudget = 20;
+	private int restPoolMaxTotal = 50;
+	private int restPoolMaxPerRoute = 20;
+	private int restPoolIdleTimeout = 30000;
+	private int restPoolTimeToLive = 300000;
+	private int restPoolValidateAfterInactivity = 2000;
+	private int restKeepAlive = 30000;
+	private boolean restBreakerEnabled = false;
+	private int restBreakerWindow = 10;
+	private int restBreakerMinimumCalls = 10;
+	private int restBreakerFailureRate = 50;
+	private int restBreakerSlowCallRate = 80;
+	private int restBreakerSlowCall = 2000;
+	private int restBreakerOpenWait = 10000;
+	private int restBreakerHalfOpenCalls = 3;
+	private boolean restLimitEnabled = false;
+	private int restLimitInitial = 20;
+	private int restLimitMin = 2;
+	private int restLimitMax = 200;
+	private int restLimitLatency = 250;
+	private int restLimitBackoff = 90;
+	private int restLimitResume = 75;
 	private String kafkaCommitRequestQueue;
 	private String kafkaCommitReplyQueue;
 	private int kafkaTimeout;
 	private String kafkaProducerPropertiesPath;
 	private String kafkaConsumerPropertiesPath;
+	private boolean kafkaBatchListener = false;
+	private int kafkaKeyedConcurrency = 1;
+	private boolean kafkaAsyncProduce = false;
+	private int commitCacheSize = 10000;
+	private int commitCacheTtl = 600000;
+	private boolean kafkaRetryEnabled = false;
+	private List<Integer> kafkaRetryDelays = Arrays.asList(1000, 10000, 60000);
+	private int kafkaRetryAttempts = 5;
+	private int logTraceSample = 0;
+	private boolean restReactive = false;
+	private boolean restHedgeEnabled = false;
+	private int restHedgePercentile = 95;
+	private int restHedgeDelayMin = 20;
+	private int restHedgeBudget = 5;
+	private String replyJournalPath = "";
+	private int replyJournalSegmentSize = 16777216;
+	private boolean backpressureEnabled = false;
+	private int backpressureInterval = 1000;
+	private int backpressureMinCalls = 20;
+	private int backpressureErrorRatePause = 50;
+	private int backpressureErrorRateResume = 10;
+	private int backpressureLatencyPause = 2000;
+	private int backpressureLatencyResume = 500;
+	private int backpressureBufferPause = 90;
+	private int backpressureBufferResume = 50;
+	private int backpressureResumeSamples = 3;
+	private Map<String, Lane> kafkaLanes = new LinkedHashMap<>();
+	private boolean kafkaVirtualThreads = false;
+	private boolean kafkaExactlyOnce = false;
+	private String kafkaTransactionIdPrefix = "qslv-fulfillment-";
+	private int kafkaListenerConcurrency = 1;
+	private int kafkaMaxPollRecords = 500;
+	private int kafkaFetchMinBytes = 1;
+	private int kafkaFetchMaxWait = 500;
+	private int kafkaMaxPartitionFetchBytes = 1048576;
+	private int kafkaSessionTimeout = 10000;
+	private boolean kafkaCooperativeRebalance = false;
+	private String kafkaGroupInstanceId = "";
+	private int kafkaDrainTimeout = 10000;
+	private int kafkaLagInterval = 10000;
 
 	public String getAitid() {
 		return aitid;
@@ -88,6 +159,14 @@ public class ConfigProperties {
 		this.restBackoffDelayMax = restBackoffDelayMax;
 	}
 
+	public int getRestRetryBudget() {
+		return restRetryBudget;
+	}
+
+	public void setRestRetryBudget(int restRetryBudget) {
+		this.restRetryBudget = restRetryBudget;
+	}
+
 	public int getKafkaTimeout() {
 		return kafkaTimeout;
 	}
@@ -128,4 +207,559 @@ public class ConfigProperties {
 		this.kafkaConsumerPropertiesPath = kafkaConsumerPropertiesPath;
 	}
 
+	public boolean isKafkaBatchListener() {
+		return kafkaBatchListener;
+	}
+
+	public void setKafkaBatchListener(boolean kafkaBatchListener) {
+		this.kafkaBatchListener = kafkaBatchListener;
+	}
+
+	public int getKafkaKeyedConcurrency() {
+		return kafkaKeyedConcurrency;
+	}
+
+	public void setKafkaKeyedConcurrency(int kafkaKeyedConcurrency) {
+		this.kafkaKeyedConcurrency = kafkaKeyedConcurrency;
+	}
+
+	public boolean isKafkaAsyncProduce() {
+		return kafkaAsyncProduce;
+	}
+
+	public void setKafkaAsyncProduce(boolean kafkaAsyncProduce) {
+		this.kafkaAsyncProduce = kafkaAsyncProduce;
+	}
+
+	public int getRestPoolMaxTotal() {
+		return restPoolMaxTotal;
+	}
+
+	public void setRestPoolMaxTotal(int restPoolMaxTotal) {
+		this.restPoolMaxTotal = restPoolMaxTotal;
+	}
+
+	public int getRestPoolMaxPerRoute() {
+		return restPoolMaxPerRoute;
+	}
+
+	public void setRestPoolMaxPerRoute(int restPoolMaxPerRoute) {
+		this.restPoolMaxPerRoute = restPoolMaxPerRoute;
+	}
+
+	public int getRestPoolIdleTimeout() {
+		return restPoolIdleTimeout;
+	}
+
+	public void setRestPoolIdleTimeout(int restPoolIdleTimeout) {
+		this.restPoolIdleTimeout = restPoolIdleTimeout;
+	}
+
+	public int getRestPoolTimeToLive() {
+		return restPoolTimeToLive;
+	}
+
+	public void setRestPoolTimeToLive(int restPoolTimeToLive) {
+		this.restPoolTimeToLive = restPoolTimeToLive;
+	}
+
+	public int getRestPoolValidateAfterInactivity() {
+		return restPoolValidateAfterInactivity;
+	}
+
+	public void setRestPoolValidateAfterInactivity(int restPoolValidateAfterInactivity) {
+		this.restPoolValidateAfterInactivity = restPoolValidateAfterInactivity;
+	}
+
+	public int getRestKeepAlive() {
+		return restKeepAlive;
+	}
+
+	public void setRestKeepAlive(int restKeepAlive) {
+		this.restKeepAlive = restKeepAlive;
+	}
+
+	public String getCommitReservationBulkUrl() {
+		return commitReservationBulkUrl;
+	}
+
+	public void setCommitReservationBulkUrl(String commitReservationBulkUrl) {
+		this.commitReservationBulkUrl = commitReservationBulkUrl;
+	}
+
+	public int getRestBulkSize() {
+		return restBulkSize;
+	}
+
+	public void setRestBulkSize(int restBulkSize) {
+		this.restBulkSize = restBulkSize;
+	}
+
+	public int getRestBulkWindow() {
+		return restBulkWindow;
+	}
+
+	public void setRestBulkWindow(int restBulkWindow) {
+		this.restBulkWindow = restBulkWindow;
+	}
+
+	public int getCommitCacheSize() {
+		return commitCacheSize;
+	}
+
+	public void setCommitCacheSize(int commitCacheSize) {
+		this.commitCacheSize = commitCacheSize;
+	}
+
+	public int getCommitCacheTtl() {
+		return commitCacheTtl;
+	}
+
+	public void setCommitCacheTtl(int commitCacheTtl) {
+		this.commitCacheTtl = commitCacheTtl;
+	}
+
+	public boolean isKafkaRetryEnabled() {
+		return kafkaRetryEnabled;
+	}
+
+	public void setKafkaRetryEnabled(boolean kafkaRetryEnabled) {
+		this.kafkaRetryEnabled = kafkaRetryEnabled;
+	}
+
+	public List<Integer> getKafkaRetryDelays() {
+		return kafkaRetryDelays;
+	}
+
+	public void setKafkaRetryDelays(List<Integer> kafkaRetryDelays) {
+		this.kafkaRetryDelays = kafkaRetryDelays;
+	}
+
+	public int getKafkaRetryAttempts() {
+		return kafkaRetryAttempts;
+	}
+
+	public void setKafkaRetryAttempts(int kafkaRetryAttempts) {
+		this.kafkaRetryAttempts = kafkaRetryAttempts;
+	}
+
+	public boolean isRestBreakerEnabled() {
+		return restBreakerEnabled;
+	}
+
+	public void setRestBreakerEnabled(boolean restBreakerEnabled) {
+		this.restBreakerEnabled = restBreakerEnabled;
+	}
+
+	public int getRestBreakerWindow() {
+		return restBreakerWindow;
+	}
+
+	public void setRestBreakerWindow(int restBreakerWindow) {
+		this.restBreakerWindow = restBreakerWindow;
+	}
+
+	public int getRestBreakerMinimumCalls() {
+		return restBreakerMinimumCalls;
+	}
+
+	public void setRestBreakerMinimumCalls(int restBreakerMinimumCalls) {
+		this.restBreakerMinimumCalls = restBreakerMinimumCalls;
+	}
+
+	public int getRestBreakerFailureRate() {
+		return restBreakerFailureRate;
+	}
+
+	public void setRestBreakerFailureRate(int restBreakerFailureRate) {
+		this.restBreakerFailureRate = restBreakerFailureRate;
+	}
+
+	public int getRestBreakerSlowCallRate() {
+		return restBreakerSlowCallRate;
+	}
+
+	public void setRestBreakerSlowCallRate(int restBreakerSlowCallRate) {
+		this.restBreakerSlowCallRate = restBreakerSlowCallRate;
+	}
+
+	public int getRestBreakerSlowCall() {
+		return restBreakerSlowCall;
+	}
+
+	public void setRestBreakerSlowCall(int restBreakerSlowCall) {
+		this.restBreakerSlowCall = restBreakerSlowCall;
+	}
+
+	public int getRestBreakerOpenWait() {
+		return restBreakerOpenWait;
+	}
+
+	public void setRestBreakerOpenWait(int restBreakerOpenWait) {
+		this.restBreakerOpenWait = restBreakerOpenWait;
+	}
+
+	public int getRestBreakerHalfOpenCalls() {
+		return restBreakerHalfOpenCalls;
+	}
+
+	public void setRestBreakerHalfOpenCalls(int restBreakerHalfOpenCalls) {
+		this.restBreakerHalfOpenCalls = restBreakerHalfOpenCalls;
+	}
+
+	public boolean isRestLimitEnabled() {
+		return restLimitEnabled;
+	}
+
+	public void setRestLimitEnabled(boolean restLimitEnabled) {
+		this.restLimitEnabled = restLimitEnabled;
+	}
+
+	public int getRestLimitInitial() {
+		return restLimitInitial;
+	}
+
+	public void setRestLimitInitial(int restLimitInitial) {
+		this.restLimitInitial = restLimitInitial;
+	}
+
+	public int getRestLimitMin() {
+		return restLimitMin;
+	}
+
+	public void setRestLimitMin(int restLimitMin) {
+		this.restLimitMin = restLimitMin;
+	}
+
+	public int getRestLimitMax() {
+		return restLimitMax;
+	}
+
+	public void setRestLimitMax(int restLimitMax) {
+		this.restLimitMax = restLimitMax;
+	}
+
+	public int getRestLimitLatency() {
+		return restLimitLatency;
+	}
+
+	public void setRestLimitLatency(int restLimitLatency) {
+		this.restLimitLatency = restLimitLatency;
+	}
+
+	public int getRestLimitBackoff() {
+		return restLimitBackoff;
+	}
+
+	public void setRestLimitBackoff(int restLimitBackoff) {
+		this.restLimitBackoff = restLimitBackoff;
+	}
+
+	public int getRestLimitResume() {
+		return restLimitResume;
+	}
+
+	public void setRestLimitResume(int restLimitResume) {
+		this.restLimitResume = restLimitResume;
+	}
+
+	public int getLogTraceSample() {
+		return logTraceSample;
+	}
+
+	public void setLogTraceSample(int logTraceSample) {
+		this.logTraceSample = logTraceSample;
+	}
+
+	public boolean isRestReactive() {
+		return restReactive;
+	}
+
+	public void setRestReactive(boolean restReactive) {
+		this.restReactive = restReactive;
+	}
+
+	public boolean isKafkaVirtualThreads() {
+		return kafkaVirtualThreads;
+	}
+
+	public void setKafkaVirtualThreads(boolean kafkaVirtualThreads) {
+		this.kafkaVirtualThreads = kafkaVirtualThreads;
+	}
+
+	public boolean isKafkaExactlyOnce() {
+		return kafkaExactlyOnce;
+	}
+
+	public void setKafkaExactlyOnce(boolean kafkaExactlyOnce) {
+		this.kafkaExactlyOnce = kafkaExactlyOnce;
+	}
+
+	public String getKafkaTransactionIdPrefix() {
+		return kafkaTransactionIdPrefix;
+	}
+
+	public void setKafkaTransactionIdPrefix(String kafkaTransactionIdPrefix) {
+		this.kafkaTransactionIdPrefix = kafkaTransactionIdPrefix;
+	}
+
+	public int getKafkaListenerConcurrency() {
+		return kafkaListenerConcurrency;
+	}
+
+	public void setKafkaListenerConcurrency(int kafkaListenerConcurrency) {
+		this.kafkaListenerConcurrency = kafkaListenerConcurrency;
+	}
+
+	public int getKafkaMaxPollRecords() {
+		return kafkaMaxPollRecords;
+	}
+
+	public void setKafkaMaxPollRecords(int kafkaMaxPollRecords) {
+		this.kafkaMaxPollRecords = kafkaMaxPollRecords;
+	}
+
+	public int getKafkaFetchMinBytes() {
+		return kafkaFetchMinBytes;
+	}
+
+	public void setKafkaFetchMinBytes(int kafkaFetchMinBytes) {
+		this.kafkaFetchMinBytes = kafkaFetchMinBytes;
+	}
+
+	public int getKafkaFetchMaxWait() {
+		return kafkaFetchMaxWait;
+	}
+
+	public void setKafkaFetchMaxWait(int kafkaFetchMaxWait) {
+		this.kafkaFetchMaxWait = kafkaFetchMaxWait;
+	}
+
+	public int getKafkaMaxPartitionFetchBytes() {
+		return kafkaMaxPartitionFetchBytes;
+	}
+
+	public void setKafkaMaxPartitionFetchBytes(int kafkaMaxPartitionFetchBytes) {
+		this.kafkaMaxPartitionFetchBytes = kafkaMaxPartitionFetchBytes;
+	}
+
+	public int getKafkaSessionTimeout() {
+		return kafkaSessionTimeout;
+	}
+
+	public void setKafkaSessionTimeout(int kafkaSessionTimeout) {
+		this.kafkaSessionTimeout = kafkaSessionTimeout;
+	}
+
+	public boolean isKafkaCooperativeRebalance() {
+		return kafkaCooperativeRebalance;
+	}
+
+	public void setKafkaCooperativeRebalance(boolean kafkaCooperativeRebalance) {
+		this.kafkaCooperativeRebalance = kafkaCooperativeRebalance;
+	}
+
+	public String getKafkaGroupInstanceId() {
+		return kafkaGroupInstanceId;
+	}
+
+	public void setKafkaGroupInstanceId(String kafkaGroupInstanceId) {
+		this.kafkaGroupInstanceId = kafkaGroupInstanceId;
+	}
+
+	public int getKafkaDrainTimeout() {
+		return kafkaDrainTimeout;
+	}
+
+	public void setKafkaDrainTimeout(int kafkaDrainTimeout) {
+		this.kafkaDrainTimeout = kafkaDrainTimeout;
+	}
+
+	public int getKafkaLagInterval() {
+		return kafkaLagInterval;
+	}
+
+	public void setKafkaLagInterval(int kafkaLagInterval) {
+		this.kafkaLagInterval = kafkaLagInterval;
+	}
+
+	public boolean isRestHedgeEnabled() {
+		return restHedgeEnabled;
+	}
+
+	public void setRestHedgeEnabled(boolean restHedgeEnabled) {
+		this.restHedgeEnabled = restHedgeEnabled;
+	}
+
+	public int getRestHedgePercentile() {
+		return restHedgePercentile;
+	}
+
+	public void setRestHedgePercentile(int restHedgePercentile) {
+		this.restHedgePercentile = restHedgePercentile;
+	}
+
+	public int getRestHedgeDelayMin() {
+		return restHedgeDelayMin;
+	}
+
+	public void setRestHedgeDelayMin(int restHedgeDelayMin) {
+		this.restHedgeDelayMin = restHedgeDelayMin;
+	}
+
+	public int getRestHedgeBudget() {
+		return restHedgeBudget;
+	}
+
+	public void setRestHedgeBudget(int restHedgeBudget) {
+		this.restHedgeBudget = restHedgeBudget;
+	}
+	public String getReplyJournalPath() {
+		return replyJournalPath;
+	}
+
+	public void setReplyJournalPath(String replyJournalPath) {
+		this.replyJournalPath = replyJournalPath;
+	}
+
+	public int getReplyJournalSegmentSize() {
+		return replyJournalSegmentSize;
+	}
+
+	public void setReplyJournalSegmentSize(int replyJournalSegmentSize) {
+		this.replyJournalSegmentSize = replyJournalSegmentSize;
+	}
+
+	public boolean isBackpressureEnabled() {
+		return backpressureEnabled;
+	}
+
+	public void setBackpressureEnabled(boolean backpressureEnabled) {
+		this.backpressureEnabled = backpressureEnabled;
+	}
+
+	public int getBackpressureInterval() {
+		return backpressureInterval;
+	}
+
+	public void setBackpressureInterval(int backpressureInterval) {
+		this.backpressureInterval = backpressureInterval;
+	}
+
+	public int getBackpressureMinCalls() {
+		return backpressureMinCalls;
+	}
+
+	public void setBackpressureMinCalls(int backpressureMinCalls) {
+		this.backpressureMinCalls = backpressureMinCalls;
+	}
+
+	public int getBackpressureErrorRatePause() {
+		return backpressureErrorRatePause;
+	}
+
+	public void setBackpressureErrorRatePause(int backpressureErrorRatePause) {
+		this.backpressureErrorRatePause = backpressureErrorRatePause;
+	}
+
+	public int getBackpressureErrorRateResume() {
+		return backpressureErrorRateResume;
+	}
+
+	public void setBackpressureErrorRateResume(int backpressureErrorRateResume) {
+		this.backpressureErrorRateResume = backpressureErrorRateResume;
+	}
+
+	public int getBackpressureLatencyPause() {
+		return backpressureLatencyPause;
+	}
+
+	public void setBackpressureLatencyPause(int backpressureLatencyPause) {
+		this.backpressureLatencyPause = backpressureLatencyPause;
+	}
+
+	public int getBackpressureLatencyResume() {
+		return backpressureLatencyResume;
+	}
+
+	public void setBackpressureLatencyResume(int backpressureLatencyResume) {
+		this.backpressureLatencyResume = backpressureLatencyResume;
+	}
+
+	public int getBackpressureBufferPause() {
+		return backpressureBufferPause;
+	}
+
+	public void setBackpressureBufferPause(int backpressureBufferPause) {
+		this.backpressureBufferPause = backpressureBufferPause;
+	}
+
+	public int getBackpressureBufferResume() {
+		return backpressureBufferResume;
+	}
+
+	public void setBackpressureBufferResume(int backpressureBufferResume) {
+		this.backpressureBufferResume = backpressureBufferResume;
+	}
+
+	public int getBackpressureResumeSamples() {
+		return backpressureResumeSamples;
+	}
+
+	public void setBackpressureResumeSamples(int backpressureResumeSamples) {
+		this.backpressureResumeSamples = backpressureResumeSamples;
+	}
+
+	public Map<String, Lane> getKafkaLanes() {
+		return kafkaLanes;
+	}
+
+	public void setKafkaLanes(Map<String, Lane> kafkaLanes) {
+		this.kafkaLanes = kafkaLanes;
+	}
+
+	/*
+	 * A priority lane, bound from qslv.kafka-lanes.<name>.*. Requests from any of the listed business
+	 * taxonomies or producer AITs are processed from the lane's own topic with its own concurrency, at no more
+	 * than rate requests per second when rate is above 0.
+	 */
+	public static class Lane {
+		private List<String> businessTaxonomyIds = new ArrayList<>();
+		private List<String> producerAits = new ArrayList<>();
+		private int concurrency = 1;
+		private int rate = 0;
+
+		public List<String> getBusinessTaxonomyIds() {
+			return businessTaxonomyIds;
+		}
+
+		public void setBusinessTaxonomyIds(List<String> businessTaxonomyIds) {
+			this.businessTaxonomyIds = businessTaxonomyIds;
+		}
+
+		public List<String> getProducerAits() {
+			return producerAits;
+		}
+
+		public void setProducerAits(List<String> producerAits) {
+			this.producerAits = producerAits;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public void setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+		}
+
+		public int getRate() {
+			return rate;
+		}
+
+		public void setRate(int rate) {
+			this.rate = rate;
+		}
+	}
+
 }
@@ -0,0 +1,65 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.SleepingBackOffPolicy;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+/*
+ * Decorrelated jitter: each wait is random between initialInterval and three times the previous wait, capped at
+ * maxInterval. Callers that failed together spread out over the following attempts instead of retrying in
+ * lockstep as they do with a fixed exponential backoff.
+ */
+public class DecorrelatedJitterBackOffPolicy implements SleepingBackOffPolicy<DecorrelatedJitterBackOffPolicy> {
+	private final long initialInterval;
+	private final long maxInterval;
+	private Sleeper sleeper = new ThreadWaitSleeper();
+
+	public DecorrelatedJitterBackOffPolicy(long initialInterval, long maxInterval) {
+		this.initialInterval = initialInterval;
+		this.maxInterval = maxInterval;
+	}
+
+	public static long next(long previous, long initialInterval, long maxInterval) {
+		long upper = Math.max(initialInterval, previous * 3);
+		long interval = initialInterval + (long) (ThreadLocalRandom.current().nextDouble() * (upper - initialInterval));
+		return Math.min(maxInterval, interval);
+	}
+
+	@Override
+	public DecorrelatedJitterBackOffPolicy withSleeper(Sleeper sleeper) {
+		DecorrelatedJitterBackOffPolicy policy = new DecorrelatedJitterBackOffPolicy(initialInterval, maxInterval);
+		policy.sleeper = sleeper;
+		return policy;
+	}
+
+	@Override
+	public BackOffContext start(RetryContext context) {
+		return new JitterContext(initialInterval);
+	}
+
+	@Override
+	public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+		JitterContext context = (JitterContext) backOffContext;
+		context.previous = next(context.previous, initialInterval, maxInterval);
+		try {
+			sleeper.sleep(context.previous);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BackOffInterruptedException("Thread interrupted while sleeping", ex);
+		}
+	}
+
+	private static class JitterContext implements BackOffContext {
+		private static final long serialVersionUID = 1L;
+		private long previous;
+
+		JitterContext(long previous) {
+			this.previous = previous;
+		}
+	}
+}
@@ -1,15 +1,33 @@
 package qslv.transaction.fulfillment;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.NonTransientDataAccessResourceException;
 import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.concurrent.ListenableFuture;
 
+import io.micrometer.core.instrument.Timer;
 import qslv.common.kafka.ResponseMessage;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
@@ -25,7 +43,23 @@ public class FulfillmentControllerService {
 	@Autowired
 	TransactionDao transactionDao;
 	@Autowired
+	private ReactiveTransactionDao reactiveTransactionDao;
+	@Autowired
 	private KafkaProducerDao kafkaDao;
+	@Autowired
+	private KeyOrderedExecutor keyOrderedExecutor;
+	@Autowired
+	private CommitReservationBatcher commitReservationBatcher;
+	@Autowired
+	private CommitResponseCache commitResponseCache;
+	@Autowired
+	private ReplyJournal replyJournal;
+	@Autowired
+	private PriorityLanes priorityLanes;
+	@Autowired
+	private FulfillmentMetrics metrics;
+	@Autowired
+	private ListenerDrain listenerDrain;
 
 	public void setKafkaDao(KafkaProducerDao kafkaDao) {
 		this.kafkaDao = kafkaDao;
@@ -36,29 +70,455 @@ public class FulfillmentControllerService {
 	public void setTransactionDao(TransactionDao transactionDao) {
 		this.transactionDao = transactionDao;
 	}
+	public void setReactiveTransactionDao(ReactiveTransactionDao reactiveTransactionDao) {
+		this.reactiveTransactionDao = reactiveTransactionDao;
+	}
+	public void setKeyOrderedExecutor(KeyOrderedExecutor keyOrderedExecutor) {
+		this.keyOrderedExecutor = keyOrderedExecutor;
+	}
+	public void setCommitReservationBatcher(CommitReservationBatcher commitReservationBatcher) {
+		this.commitReservationBatcher = commitReservationBatcher;
+	}
+	public void setCommitResponseCache(CommitResponseCache commitResponseCache) {
+		this.commitResponseCache = commitResponseCache;
+	}
+	public void setReplyJournal(ReplyJournal replyJournal) {
+		this.replyJournal = replyJournal;
+	}
+	public void setPriorityLanes(PriorityLanes priorityLanes) {
+		this.priorityLanes = priorityLanes;
+	}
+	public void setMetrics(FulfillmentMetrics metrics) {
+		this.metrics = metrics;
+	}
+	public void setListenerDrain(ListenerDrain listenerDrain) {
+		this.listenerDrain = listenerDrain;
+	}
 
 	public void fulfillCommit(TraceableMessage<CommitReservationRequest> message, Acknowledgment acknowledgment) {
-		log.warn("ENTRY FulfillmentControllerService::fulfillCommit");
-		
+		fulfillCommit(message, acknowledgment, priorityLanes.laneFor(message));
+	}
+
+	// A request already on its priority lane's topic.
+	public void fulfillLaneCommit(TraceableMessage<CommitReservationRequest> message, Acknowledgment acknowledgment) {
+		fulfillCommit(message, acknowledgment, null);
+	}
+
+	private void fulfillCommit(TraceableMessage<CommitReservationRequest> message, Acknowledgment acknowledgment, String lane) {
+		log.trace("fulfillCommit ENTRY");
+		if ( listenerDrain.isDraining() ) {
+			// Left over from the last poll, redelivered to whoever owns the partition next.
+			acknowledgment.nack(config.getKafkaTimeout());
+			return;
+		}
+
+		Future<?> reply;
+		if ( null != lane ) {
+			reply = forwardToLane(message, lane);
+		} else {
+			reply = processCommit(message, false);
+			if ( null == reply ) {
+				reply = forwardToRetry(message, 1);
+			}
+		}
+		if ( false == isDurable(reply) ) {
+			acknowledgment.nack(config.getKafkaTimeout());
+			return;
+		}
+
+		acknowledgment.acknowledge();
+		log.trace("fulfillCommit EXIT");
+	}
+
+	/*
+	 * Process a request taken from a retry topic once it is due. Another recoverable failure forwards it to
+	 * the next tier, so the retry partition is only held when the forward itself cannot be produced.
+	 */
+	public void fulfillRetry(TraceableMessage<CommitReservationRequest> message, int attempt, Acknowledgment acknowledgment) {
+		log.trace("ENTRY FulfillmentControllerService::fulfillRetry attempt {}", attempt);
+		if ( listenerDrain.isDraining() ) {
+			acknowledgment.nack(config.getKafkaTimeout());
+			return;
+		}
+
+		Future<?> reply = processCommit(message, false);
+		if ( null == reply ) {
+			reply = forwardToRetry(message, attempt + 1);
+		}
+		if ( false == isDurable(reply) ) {
+			acknowledgment.nack(config.getKafkaTimeout());
+			return;
+		}
+
+		acknowledgment.acknowledge();
+		log.trace("EXIT FulfillmentControllerService::fulfillRetry");
+	}
+
+	/*
+	 * Process a whole poll batch and commit offsets once. On a recoverable error the records before it are
+	 * committed and only the failed record onward is redelivered. With async produce every reply in the batch
+	 * is queued, flushed together, and the batch is acknowledged only once the replies are durable. With retry
+	 * topics enabled a failed record is forwarded instead, and only a failed forward returns records to Kafka.
+	 * In exactly-once mode the container runs this in a Kafka transaction and commits the replies together with
+	 * the offsets of the records before any failure. Once the service is draining, records not yet started are
+	 * returned to Kafka; commits already handed to the reactive client run to completion. Records for a priority
+	 * lane are moved to the lane's topic and the rest processed here; the committed prefix ends at the first
+	 * record of either kind that did not complete, so lane records past it may be moved again on redelivery.
+	 */
+	public void fulfillCommits(List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records, Acknowledgment acknowledgment) {
+		log.trace("ENTRY FulfillmentControllerService::fulfillCommits");
+
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> kept = records;
+		List<Integer> keptIndexes = new ArrayList<>();
+		List<Future<?>> forwards = new ArrayList<>();
+		List<Integer> forwardIndexes = new ArrayList<>();
+		if ( priorityLanes.isEnabled() ) {
+			kept = new ArrayList<>(records.size());
+			for (int index = 0; index < records.size(); index++) {
+				String lane = priorityLanes.laneFor(records.get(index).value());
+				if ( null == lane ) {
+					kept.add(records.get(index));
+					keptIndexes.add(index);
+				} else {
+					forwards.add(forwardToLane(records.get(index).value(), lane));
+					forwardIndexes.add(index);
+				}
+			}
+		}
+
+		boolean produceAsync = config.isKafkaAsyncProduce();
+		List<Future<?>> replies;
+		if ( config.isRestReactive() ) {
+			replies = processReactive(kept, produceAsync);
+		} else if ( keyOrderedExecutor.isEnabled() ) {
+			replies = config.isKafkaExactlyOnce() ? processKeyOrderedInTransaction(kept, produceAsync)
+					: processKeyOrdered(kept, produceAsync);
+		} else {
+			replies = processInOrder(kept, produceAsync);
+		}
+		if ( produceAsync ) {
+			kafkaDao.flush();
+		}
+
+		int failedIndex = awaitReplies(replies);
+		if ( priorityLanes.isEnabled() ) {
+			failedIndex = Math.min(recordIndex(keptIndexes, failedIndex, records.size()),
+					recordIndex(forwardIndexes, awaitReplies(forwards), records.size()));
+		}
+		if ( failedIndex < records.size() && listenerDrain.isDraining() ) {
+			log.info("Draining. Commit {} messages, return {} to Kafka.", failedIndex, records.size() - failedIndex);
+			acknowledgment.nack(failedIndex, config.getKafkaTimeout());
+			return;
+		}
+		if ( failedIndex < records.size() ) {
+			log.warn("Recoverable error at batch index {}. Commit {} prior messages, return {} to Kafka.", 
+					failedIndex, failedIndex, records.size() - failedIndex);
+			acknowledgment.nack(failedIndex, config.getKafkaTimeout());
+			return;
+		}
+
+		acknowledgment.acknowledge();
+		log.trace("EXIT FulfillmentControllerService::fulfillCommits");
+	}
+
+	/*
+	 * Returns one pending reply per record, stopping after the first record that must be redelivered.
+	 */
+	private List<Future<?>> processInOrder(List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records, boolean produceAsync) {
+		List<Future<?>> replies = new ArrayList<>(records.size());
+		for (ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record : records) {
+			if ( listenerDrain.isDraining() ) {
+				break;
+			}
+			Future<?> reply = processCommit(record.value(), produceAsync);
+			if ( null == reply ) {
+				reply = forwardToRetry(record.value(), 1);
+			}
+			replies.add(reply);
+			if ( null == reply ) {
+				break;
+			}
+		}
+		return replies;
+	}
+
+	/*
+	 * Records are fanned out by account number, the same key used to partition the request and reply topics.
+	 * Per account ordering is kept by the executor; once an account fails, its later records in the batch are
+	 * skipped so they are redelivered behind it. Only the contiguous prefix of completed records is committed,
+	 * other accounts past the failure are reprocessed on redelivery and rely on the idempotent request UUID.
+	 */
+	private List<Future<?>> processKeyOrdered(List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records, boolean produceAsync) {
+		Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+		List<Future<Future<?>>> results = new ArrayList<>(records.size());
+
+		for (ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record : records) {
+			TraceableMessage<CommitReservationRequest> message = record.value();
+			String key = KafkaProducerDao.messageKey(message.getPayload());
+			results.add(keyOrderedExecutor.submit(key, () -> {
+				if ( (key != null && failedKeys.contains(key)) || listenerDrain.isDraining() ) {
+					return null;
+				}
+				Future<?> reply = processCommit(message, produceAsync);
+				if ( null == reply ) {
+					reply = forwardToRetry(message, 1);
+				}
+				if ( null == reply && key != null ) {
+					failedKeys.add(key);
+				}
+				return reply;
+			}));
+		}
+
+		List<Future<?>> replies = new ArrayList<>(records.size());
+		for (Future<Future<?>> result : results) {
+			try {
+				replies.add(result.get());
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				replies.add(null);
+			} catch (ExecutionException ex) {
+				log.error("Unexpected worker failure. {}", ex.getLocalizedMessage());
+				replies.add(null);
+			}
+		}
+		return replies;
+	}
+
+	/*
+	 * processKeyOrdered for exactly-once mode. The Kafka transaction belongs to the listener thread, so the lanes
+	 * only commit and the replies are produced in record order on the listener thread, as in processReactive.
+	 */
+	private List<Future<?>> processKeyOrderedInTransaction(List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records, 
+			boolean produceAsync) {
+		boolean stopBehindFailure = false == config.isKafkaRetryEnabled();
+		Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+		List<Supplier<CommitReservationResponse>> commits = new ArrayList<>(records.size());
+		for (ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record : records) {
+			TraceableMessage<CommitReservationRequest> message = record.value();
+			String key = KafkaProducerDao.messageKey(message.getPayload());
+			Future<CommitReservationResponse> commit = keyOrderedExecutor.submit(key, () -> {
+				if ( stopBehindFailure && key != null && failedKeys.contains(key) ) {
+					throw new TransientDataAccessResourceException(String.format("Earlier commit for %s failed.", key));
+				}
+				// processCommit validates again and replies to a malformed message.
+				validateMessage(message);
+				validateCommitReservationRequest(message.getPayload());
+				try {
+					return commitReservation(message);
+				} catch (TransientDataAccessException ex) {
+					if ( key != null ) {
+						failedKeys.add(key);
+					}
+					throw ex;
+				}
+			});
+			commits.add(() -> get(commit));
+		}
+		return produceInOrder(records, commits, produceAsync);
+	}
+
+	/*
+	 * Every commit in the batch is started at once on the non-blocking client. Commits for the same account are
+	 * chained, so they still reach the service in order; without retry topics one that failed recoverably also
+	 * fails the ones behind it, since they are redelivered after it. Replies are then produced in record order on
+	 * the listener thread, stopping like processInOrder at the first record that must be redelivered. Commits past
+	 * it still complete into the response cache for the redelivery. Bulk commit batching does not apply here.
+	 */
+	private List<Future<?>> processReactive(List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records, boolean produceAsync) {
+		boolean stopBehindFailure = false == config.isKafkaRetryEnabled();
+		Map<String, CompletableFuture<CommitReservationResponse>> lastByKey = new HashMap<>();
+		List<Supplier<CommitReservationResponse>> commits = new ArrayList<>(records.size());
+		for (ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record : records) {
+			TraceableMessage<CommitReservationRequest> message = record.value();
+			String key = KafkaProducerDao.messageKey(message.getPayload());
+			CompletableFuture<CommitReservationResponse> previous = (key == null) ? null : lastByKey.get(key);
+			CompletableFuture<CommitReservationResponse> commit = (previous == null) ? commitReservationAsync(message)
+					: previous.handle((response, ex) -> unwrap(ex)).thenCompose(ex -> 
+							stopBehindFailure && ex instanceof TransientDataAccessException ? failedCommit(ex) : commitReservationAsync(message));
+			if ( key != null ) {
+				lastByKey.put(key, commit);
+			}
+			commits.add(() -> join(commit));
+		}
+		return produceInOrder(records, commits, produceAsync);
+	}
+
+	/*
+	 * Produces the replies to commits already under way in record order on the calling thread, stopping like
+	 * processInOrder at the first record that must be redelivered.
+	 */
+	private List<Future<?>> produceInOrder(List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records,
+			List<Supplier<CommitReservationResponse>> commits, boolean produceAsync) {
+		List<Future<?>> replies = new ArrayList<>(records.size());
+		for (int index = 0; index < records.size(); index++) {
+			TraceableMessage<CommitReservationRequest> message = records.get(index).value();
+			Future<?> reply = processCommit(message, produceAsync, commits.get(index));
+			if ( null == reply ) {
+				reply = forwardToRetry(message, 1);
+			}
+			replies.add(reply);
+			if ( null == reply ) {
+				break;
+			}
+		}
+		return replies;
+	}
+
+	private CompletableFuture<CommitReservationResponse> commitReservationAsync(TraceableMessage<CommitReservationRequest> message) {
+		try {
+			validateMessage(message);
+			validateCommitReservationRequest(message.getPayload());
+		} catch (RuntimeException ex) {
+			// processCommit repeats the validation and replies to the malformed message.
+			return failedCommit(ex);
+		}
+		UUID requestUuid = message.getPayload().getRequestUuid();
+		CommitReservationResponse cached = commitResponseCache.get(requestUuid);
+		if ( null != cached ) {
+			log.debug("Duplicate request {}. Reply from cache.", requestUuid);
+			return CompletableFuture.completedFuture(cached);
+		}
+		CommitReservationResponse journaled = replyJournal.get(requestUuid);
+		if ( null != journaled ) {
+			log.debug("Duplicate request {}. Reply from journal.", requestUuid);
+			return CompletableFuture.completedFuture(journaled);
+		}
+		return reactiveTransactionDao.commitReservation(message, message.getPayload())
+				.doOnNext(response -> {
+					replyJournal.append(requestUuid, response);
+					commitResponseCache.put(requestUuid, response);
+				})
+				.toFuture();
+	}
+
+	private static CompletableFuture<CommitReservationResponse> failedCommit(Throwable ex) {
+		CompletableFuture<CommitReservationResponse> failed = new CompletableFuture<>();
+		failed.completeExceptionally(ex);
+		return failed;
+	}
+
+	private static Throwable unwrap(Throwable ex) {
+		return (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException ex) {
+			Throwable cause = unwrap(ex);
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			throw ex;
+		}
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new TransientDataAccessResourceException("Interrupted waiting for commit.", ex);
+		} catch (ExecutionException ex) {
+			if ( ex.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
+	/*
+	 * Returns the index of the first record whose reply is not durable on the broker, or the number of replies.
+	 */
+	private int awaitReplies(List<Future<?>> replies) {
+		for (int index = 0; index < replies.size(); index++) {
+			if ( false == isDurable(replies.get(index)) ) {
+				return index;
+			}
+		}
+		return replies.size();
+	}
+
+	private boolean isDurable(Future<?> reply) {
+		if ( null == reply ) {
+			return false;
+		}
+		try {
+			reply.get();
+			return true;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException ex) {
+			log.warn("Kafka Producer failure. {}", ex.getCause().getLocalizedMessage());
+			return false;
+		}
+	}
+
+	private static int recordIndex(List<Integer> recordIndexes, int index, int size) {
+		return index < recordIndexes.size() ? recordIndexes.get(index) : size;
+	}
+
+	// Returns null when the message must stay on Kafka.
+	private Future<?> forwardToLane(TraceableMessage<CommitReservationRequest> message, String lane) {
+		try {
+			return kafkaDao.produceLane(message, lane);
+		} catch (Exception ex) {
+			log.error("Lane {} forward failed. Keep message on Kafka. {}", lane, ex.getLocalizedMessage());
+			return null;
+		}
+	}
+
+	/*
+	 * With retry topics enabled a recoverable failure is forwarded to a delay tier, or to the dead letter topic,
+	 * instead of stalling the partition. Returns null when the message must stay on Kafka.
+	 */
+	private Future<?> forwardToRetry(TraceableMessage<CommitReservationRequest> message, int attempt) {
+		if ( false == config.isKafkaRetryEnabled() ) {
+			return null;
+		}
+		try {
+			return kafkaDao.produceRetry(message, attempt);
+		} catch (Exception ex) {
+			log.error("Retry forward failed. Keep message on Kafka. {}", ex.getLocalizedMessage());
+			return null;
+		}
+	}
+
+	/*
+	 * Returns the pending reply, or null when the message must stay on Kafka. When produceAsync is false the
+	 * reply is already on the broker and the returned future is complete.
+	 */
+	private Future<?> processCommit(TraceableMessage<CommitReservationRequest> message, boolean produceAsync) {
+		return processCommit(message, produceAsync, () -> commitReservation(message));
+	}
+
+	private Future<?> processCommit(TraceableMessage<CommitReservationRequest> message, boolean produceAsync,
+			Supplier<CommitReservationResponse> commit) {
 		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> traceableResponse = 
 				new TraceableMessage<>(message, new ResponseMessage<CommitReservationRequest,CommitReservationResponse>(message.getPayload()));
 
 		try {
+			Timer.Sample validation = metrics.start();
 			validateMessage(message);
 			validateCommitReservationRequest(message.getPayload());	
+			metrics.stopValidation(validation);
 
-			CommitReservationResponse commitResponse = transactionDao.commitReservation(message, message.getPayload());
+			CommitReservationResponse commitResponse = commit.get();
 
 			traceableResponse.getPayload().setResponse( commitResponse );
 			traceableResponse.setMessageCompletionTime(LocalDateTime.now());
 
-			kafkaDao.produceCommit(traceableResponse);
+			Future<?> reply = produceReply(traceableResponse, produceAsync);
 			ServiceLevelIndicator.logAsyncServiceElapsedTime(log, "TransferFulfillment::fulfillCommit", 
 					config.getAitid(), message.getMessageCreationTime());
+			metrics.recordEndToEnd(message.getMessageCreationTime(), FulfillmentMetrics.SUCCESS);
+			return reply;
 		} catch (TransientDataAccessException ex) {
-			log.warn("Recoverable error. Return message to Kafka and sleep for {} ms.", config.getKafkaTimeout());
-			acknowledgment.nack(10000L);
-			return;	
+			log.warn("Recoverable error. {}", ex.getLocalizedMessage());
+			metrics.recordEndToEnd(message.getMessageCreationTime(), FulfillmentMetrics.RETRY);
+			return null;
 
 		} catch (Exception ex) {
 			log.error("Unrecoverable exception thrown. {}", ex.getLocalizedMessage());
@@ -70,16 +530,70 @@ public class FulfillmentControllerService {
 				traceableResponse.getPayload().setStatus(ResponseMessage.INTERNAL_ERROR);
 			}
 			try {
-				kafkaDao.produceCommit(traceableResponse);
+				Future<?> reply = produceReply(traceableResponse, produceAsync);
+				metrics.recordEndToEnd(message.getMessageCreationTime(), 
+						ex instanceof MalformedMessageException ? FulfillmentMetrics.MALFORMED : FulfillmentMetrics.FAILURE);
+				return reply;
 			} catch (Exception iex) {
 				log.error("Additional unexpected exception caught while processing unexpected exception. Keep message on Kafka. {}", iex.getLocalizedMessage());
-				acknowledgment.nack(10000L);
-				return;	
+				return null;
 			}
 		}
+	}
 
-		acknowledgment.acknowledge();
-		log.warn("EXIT FulfillmentControllerService::fulfillCommit");
+	/*
+	 * A redelivered request that already committed is answered from the cache, or after a restart from the
+	 * journal, without calling the service.
+	 */
+	private CommitReservationResponse commitReservation(TraceableMessage<CommitReservationRequest> message) {
+		UUID requestUuid = message.getPayload().getRequestUuid();
+		CommitReservationResponse commitResponse = commitResponseCache.get(requestUuid);
+		if ( null != commitResponse ) {
+			log.debug("Duplicate request {}. Reply from cache.", requestUuid);
+			return commitResponse;
+		}
+		commitResponse = replyJournal.get(requestUuid);
+		if ( null != commitResponse ) {
+			log.debug("Duplicate request {}. Reply from journal.", requestUuid);
+			return commitResponse;
+		}
+
+		commitResponse = commitReservationBatcher.isEnabled()
+				? commitReservationBatcher.commitReservation(message)
+				: transactionDao.commitReservation(message, message.getPayload());
+		replyJournal.append(requestUuid, commitResponse);
+		commitResponseCache.put(requestUuid, commitResponse);
+		return commitResponse;
+	}
+
+	private Future<?> produceReply(TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> traceableResponse, 
+			boolean produceAsync) {
+		CommitReservationRequest request = traceableResponse.getPayload().getRequest();
+		UUID requestUuid = request == null ? null : request.getRequestUuid();
+		// In exactly-once mode the reply is only durable once the listener's Kafka transaction commits. The
+		// journal entry is kept until then, so a redelivery after an abort is answered from it.
+		boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive()
+				&& TransactionSynchronizationManager.isActualTransactionActive();
+		if ( inTransaction ) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					replyJournal.acknowledge(requestUuid);
+				}
+			});
+		}
+		if ( produceAsync ) {
+			ListenableFuture<?> reply = kafkaDao.produceCommitAsync(traceableResponse);
+			if ( false == inTransaction ) {
+				reply.addCallback(result -> replyJournal.acknowledge(requestUuid), ex -> {});
+			}
+			return reply;
+		}
+		kafkaDao.produceCommit(traceableResponse);
+		if ( false == inTransaction ) {
+			replyJournal.acknowledge(requestUuid);
+		}
+		return CompletableFuture.completedFuture(null);
 	}
 	public class MalformedMessageException extends RuntimeException {
 		private static final long serialVersionUID = 1L;
@@ -0,0 +1,82 @@
+package qslv.transaction.fulfillment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Timers for each stage of a commit, published with p50/p95/p99 and a percentile histogram so they can be
+ * aggregated across replicas in Prometheus. Stage timers are tagged with the outcome.
+ */
+@Component
+public class FulfillmentMetrics {
+	public static final String SUCCESS = "success";
+	public static final String FAILURE = "failure";
+	public static final String MALFORMED = "malformed";
+	public static final String RETRY = "retry";
+	public static final String REJECTED = "rejected";
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	public void setRegistry(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	public Timer.Sample start() {
+		return Timer.start(registry);
+	}
+
+	// Time from the record being written to Kafka until this service picked it up.
+	public void recordConsumeLag(long recordTimestamp) {
+		timer("qslv.fulfillment.consume.lag", "Kafka append to listener start")
+			.record(Math.max(0L, System.currentTimeMillis() - recordTimestamp), TimeUnit.MILLISECONDS);
+	}
+
+	public void stopValidation(Timer.Sample sample) {
+		sample.stop(timer("qslv.fulfillment.validation", "Message validation", "outcome", SUCCESS));
+	}
+
+	public void stopRest(Timer.Sample sample, String uri, String outcome) {
+		sample.stop(timer("qslv.fulfillment.rest", "Commit service call including retries", "uri", uri, "outcome", outcome));
+	}
+
+	public void incrementRestRetries() {
+		Counter.builder("qslv.fulfillment.rest.retries")
+			.description("Commit service attempts beyond the first")
+			.register(registry).increment();
+	}
+
+	public void stopProduce(Timer.Sample sample, String outcome) {
+		sample.stop(timer("qslv.fulfillment.produce", "Reply produce until acknowledged by the broker", "outcome", outcome));
+	}
+
+	// Time from the requester creating the message until its reply was produced.
+	public void recordEndToEnd(LocalDateTime messageCreationTime, String outcome) {
+		if ( messageCreationTime == null ) {
+			return;
+		}
+		timer("qslv.fulfillment.end.to.end", "Message creation to reply", "outcome", outcome)
+			.record(Duration.between(messageCreationTime, LocalDateTime.now()));
+	}
+
+	private Timer timer(String name, String description, String... tags) {
+		return timers.computeIfAbsent(name + String.join(",", tags), key -> Timer.builder(name)
+				.description(description)
+				.tags(tags)
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.publishPercentileHistogram()
+				.register(registry));
+	}
+}
@@ -1,5 +1,7 @@
 package qslv.transaction.fulfillment;
 
+import java.util.List;
+
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,22 +15,128 @@ import qslv.transaction.request.CommitReservationRequest;
 @Component
 public class KafkaCommitListener {
 	private static final Logger log = LoggerFactory.getLogger(KafkaCommitListener.class);
+	// Longest a retry tier consumer sleeps in one nack. A rebalance waits for every consumer in the group to
+	// poll, so a long sleep would hold up the request partitions too.
+	static final long MAX_NACK_SLEEP = 5000L;
 
 	@Autowired
 	private FulfillmentControllerService fulfillmentController;
+	@Autowired
+	private FulfillmentMetrics metrics;
+	@Autowired
+	private MessageTraceLog messageTrace;
+	@Autowired
+	private ListenerDrain listenerDrain;
+	@Autowired
+	private ScalingMetrics scalingMetrics;
+	@Autowired
+	private PriorityLanes priorityLanes;
 
 	public void setFulfillmentController(FulfillmentControllerService fulfillmentController) {
 		this.fulfillmentController = fulfillmentController;
 	}
+	public void setMetrics(FulfillmentMetrics metrics) {
+		this.metrics = metrics;
+	}
+	public void setMessageTrace(MessageTraceLog messageTrace) {
+		this.messageTrace = messageTrace;
+	}
+	public void setListenerDrain(ListenerDrain listenerDrain) {
+		this.listenerDrain = listenerDrain;
+	}
+	public void setScalingMetrics(ScalingMetrics scalingMetrics) {
+		this.scalingMetrics = scalingMetrics;
+	}
+	public void setPriorityLanes(PriorityLanes priorityLanes) {
+		this.priorityLanes = priorityLanes;
+	}
 
-	@KafkaListener(topics = "#{ @configProperties.kafkaCommitRequestQueue }")
+	@KafkaListener(topics = "#{ @configProperties.kafkaCommitRequestQueue }", 
+			autoStartup = "#{ !@configProperties.kafkaBatchListener }")
 	void onCommitMessage(final ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> data, Acknowledgment acknowledgment) {
 		log.trace("onMessage ENTRY");
+		metrics.recordConsumeLag(data.timestamp());
+		messageTrace.sample(data);
 
-		fulfillmentController.fulfillCommit(data.value(), acknowledgment);
-		log.error("========================={} {}", data.key(), data.value());
+		long start = System.nanoTime();
+		listenerDrain.begin();
+		try {
+			fulfillmentController.fulfillCommit(data.value(), acknowledgment);
+		} finally {
+			listenerDrain.end();
+			scalingMetrics.recordProcessed(1, System.nanoTime() - start);
+		}
 
 		log.trace("onMessage EXIT");
 	}
 
+	@KafkaListener(topics = "#{ @configProperties.kafkaCommitRequestQueue }", containerFactory = "batchKafkaListenerContainerFactory",
+			autoStartup = "#{ @configProperties.kafkaBatchListener }")
+	void onCommitMessages(final List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> data, Acknowledgment acknowledgment) {
+		log.trace("onCommitMessages ENTRY {} records", data.size());
+		for (ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record : data) {
+			metrics.recordConsumeLag(record.timestamp());
+			messageTrace.sample(record);
+		}
+
+		long start = System.nanoTime();
+		listenerDrain.begin();
+		try {
+			fulfillmentController.fulfillCommits(data, acknowledgment);
+		} finally {
+			listenerDrain.end();
+			scalingMetrics.recordProcessed(data.size(), System.nanoTime() - start);
+		}
+
+		log.trace("onCommitMessages EXIT");
+	}
+
+	/*
+	 * Registered per priority lane by LaneListenerContainers. Waiting for the lane's rate limit holds only this
+	 * lane's consumer.
+	 */
+	void onLaneMessage(String lane, final ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> data, Acknowledgment acknowledgment) {
+		log.trace("onLaneMessage ENTRY");
+		priorityLanes.acquire(lane);
+		metrics.recordConsumeLag(data.timestamp());
+		messageTrace.sample(data);
+
+		long start = System.nanoTime();
+		listenerDrain.begin();
+		try {
+			fulfillmentController.fulfillLaneCommit(data.value(), acknowledgment);
+		} finally {
+			listenerDrain.end();
+			scalingMetrics.recordProcessed(1, System.nanoTime() - start);
+		}
+
+		log.trace("onLaneMessage EXIT");
+	}
+
+	/*
+	 * Registered per delay tier by RetryListenerContainers. A tier holds a single delay so its records come
+	 * due in offset order; an early record is nacked until due, which only holds back this tier's container.
+	 * Each nack sleeps at most MAX_NACK_SLEEP ms and the record is redelivered until it is due.
+	 */
+	void onRetryMessage(final ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> data, Acknowledgment acknowledgment) {
+		log.trace("onRetryMessage ENTRY");
+
+		long wait = KafkaProducerDao.retryDue(data) - System.currentTimeMillis();
+		if ( wait > 0 ) {
+			acknowledgment.nack(Math.min(wait, MAX_NACK_SLEEP));
+			return;
+		}
+		messageTrace.sample(data);
+		long start = System.nanoTime();
+		listenerDrain.begin();
+		try {
+			fulfillmentController.fulfillRetry(data.value(), KafkaProducerDao.retryAttempt(data), acknowledgment);
+		} finally {
+			listenerDrain.end();
+			scalingMetrics.recordProcessed(1, System.nanoTime() - start);
+		}
+
+		log.trace("onRetryMessage EXIT");
+	}
+
 }
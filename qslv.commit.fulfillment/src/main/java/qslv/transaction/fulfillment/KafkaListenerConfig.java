@@ -1,10 +1,17 @@
 package qslv.transaction.fulfillment;
 
 import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,18 +22,28 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ContainerProperties.AckMode;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.util.StringUtils;
 
-import qslv.common.kafka.JacksonAvroDeserializer;
+import qslv.common.kafka.ResponseMessage;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
 
 @Configuration
 public class KafkaListenerConfig {
 	private static final Logger log = LoggerFactory.getLogger(KafkaListenerConfig.class);
+	// The consumer's max.poll.interval.ms default.
+	private static final long DEFAULT_MAX_POLL_INTERVAL = 300000L;
 
 	@Autowired
 	ConfigProperties config;
+	@Autowired
+	KafkaProducerDao kafkaDao;
+	@Autowired(required = false)
+	KafkaTransactionManager<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitTransactionManager;
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Bean
@@ -52,10 +69,45 @@ public class KafkaListenerConfig {
     @Bean
     public ConsumerFactory<String, TraceableMessage<CommitReservationRequest>> consumerFactory() throws Exception {
     	
-    	JacksonAvroDeserializer<TraceableMessage<CommitReservationRequest>> jad = new JacksonAvroDeserializer<>();
-    	jad.configure(listenerConfig());
+    	// Request, lane and retry topics all carry commit requests.
+    	TraceableMessageDeserializer<TraceableMessage<CommitReservationRequest>> tmd = new TraceableMessageDeserializer<>(MessageTypes.COMMIT_REQUEST);
     	
-        return new DefaultKafkaConsumerFactory<>(listenerConfig(), new StringDeserializer(),  jad);
+        Map<String,Object> consumerConfig = new HashMap<>(listenerConfig());
+        consumerConfig.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, config.getKafkaMaxPollRecords());
+        consumerConfig.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, config.getKafkaFetchMinBytes());
+        consumerConfig.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, config.getKafkaFetchMaxWait());
+        consumerConfig.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, config.getKafkaMaxPartitionFetchBytes());
+        consumerConfig.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, config.getKafkaSessionTimeout());
+        if ( config.isKafkaCooperativeRebalance() ) {
+            // A rebalance only revokes the partitions that move. Range stays listed so pods still on the eager
+            // protocol can share the group during the rolling deploy that switches this on.
+            consumerConfig.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG,
+                    Arrays.asList(CooperativeStickyAssignor.class.getName(), RangeAssignor.class.getName()));
+        }
+        if ( config.isKafkaExactlyOnce() ) {
+            // Retry and lane topic records forwarded from an aborted transaction are skipped.
+            consumerConfig.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        }
+        verifyRetryDelays(consumerConfig);
+        return new DefaultKafkaConsumerFactory<>(consumerConfig, new StringDeserializer(),  tmd);
+    }
+
+    // A retry tier consumer waits out its delay in capped nacks, but a tier as long as the poll interval
+    // means the consumer is configured to be evicted by its own retries.
+    void verifyRetryDelays(Map<String,Object> consumerConfig) {
+        if ( false == config.isKafkaRetryEnabled() ) {
+            return;
+        }
+        Object configured = consumerConfig.get(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG);
+        long maxPollInterval = configured == null ? DEFAULT_MAX_POLL_INTERVAL : Long.parseLong(configured.toString());
+        for (Integer delay : config.getKafkaRetryDelays()) {
+            if ( delay >= maxPollInterval ) {
+                String msg = String.format("kafka-retry-delays %s must each be below %s %d.", 
+                        config.getKafkaRetryDelays(), ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, maxPollInterval);
+                log.error(msg);
+                throw new IllegalArgumentException(msg);
+            }
+        }
     }
     
     @Bean
@@ -63,8 +115,60 @@ public class KafkaListenerConfig {
     
         ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
-        //#TODO: can this be batched for better throughput and still retain idempotency?
         factory.getContainerProperties().setAckMode(AckMode.MANUAL_IMMEDIATE);
+        configureContainers(factory);
         return factory;
     }
+
+    // Batch mode hands the whole poll to the listener and commits offsets once per batch.
+    // A recoverable failure nacks from the failed record onward; prior offsets are committed.
+    // In exactly-once mode the replies and offsets of a poll are committed in one Kafka transaction.
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> batchKafkaListenerContainerFactory() throws Exception {
+    
+        ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        configureContainers(factory);
+        return factory;
+    }
+
+    private void configureContainers(ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> factory) {
+        // One consumer thread per unit of concurrency, partitions beyond the total are left idle.
+        factory.setConcurrency(config.getKafkaListenerConcurrency());
+
+        // After ListenerDrain the container gets as long again to finish a straggler and commit its offsets.
+        factory.getContainerProperties().setShutdownTimeout(config.getKafkaDrainTimeout());
+        // Listeners only acknowledge durable replies, so by a revocation replies are out. The flush makes sure
+        // of it before the container commits the pending offsets and releases the partitions.
+        factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                log.info("Partitions revoked {}", partitions);
+                kafkaDao.flush();
+            }
+        });
+
+        // The container begins the transaction before the listener and sends the consumed offsets to it after.
+        if ( config.isKafkaExactlyOnce() && commitTransactionManager != null ) {
+            factory.getContainerProperties().setTransactionManager(commitTransactionManager);
+        }
+
+        // Static membership. A restarted consumer rejoins within kafkaSessionTimeout without a rebalance. The
+        // listener and retry tier containers share the group, so each gets its own id by topic; the container
+        // adds a -n suffix per consumer thread.
+        if ( StringUtils.hasText(config.getKafkaGroupInstanceId()) ) {
+            factory.setContainerCustomizer(container -> {
+                Properties consumerProperties = new Properties();
+                consumerProperties.putAll(container.getContainerProperties().getKafkaConsumerProperties());
+                consumerProperties.setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId(container.getContainerProperties().getTopics()));
+                container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+            });
+        }
+    }
+
+    String groupInstanceId(String[] topics) {
+        return config.getKafkaGroupInstanceId() + "-" + StringUtils.arrayToDelimitedString(topics, "-");
+    }
 }
@@ -9,15 +9,15 @@ import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import com.fasterxml.jackson.databind.JavaType;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 
-import qslv.common.kafka.JacksonAvroSerializer;
 import qslv.common.kafka.ResponseMessage;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
@@ -53,17 +53,53 @@ public class KafkaProducerConfig {
 	@Bean
 	public ProducerFactory<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitProducerFactory() throws Exception {
 		
-    	JacksonAvroSerializer<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> jas = new JacksonAvroSerializer<>();
-		JavaType type = jas.getTypeFactory().constructParametricType(TraceableMessage.class, 
-				jas.getTypeFactory().constructParametricType(ResponseMessage.class, CommitReservationRequest.class, CommitReservationResponse.class));
-    	jas.configure(producerConfig(), false, type);
-	
-		return new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(), jas);
+		// Replies, and in exactly-once mode the retry and lane forwards sent with them.
+		TraceableMessageSerializer<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> tms =
+				new TraceableMessageSerializer<>(MessageTypes.COMMIT_REPLY, MessageTypes.COMMIT_REQUEST);
+
+		DefaultKafkaProducerFactory<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> factory =
+				new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(), tms);
+		if ( config.isKafkaExactlyOnce() ) {
+			// One transactional producer per consumed partition, so a zombie instance is fenced after a rebalance.
+			factory.setTransactionIdPrefix(config.getKafkaTransactionIdPrefix());
+		}
+		return factory;
+	}
+
+	// Started by the listener containers, see KafkaListenerConfig. Reply consumers must read with isolation.level=read_committed.
+	@Bean
+	@ConditionalOnProperty(name = "qslv.kafka-exactly-once", havingValue = "true")
+	public KafkaTransactionManager<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitTransactionManager() throws Exception {
+		return new KafkaTransactionManager<>(commitProducerFactory());
 	}
 
 	@Bean
 	public KafkaTemplate<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitKafkaTemplate() throws Exception {
-		return new KafkaTemplate<>(commitProducerFactory(), true); // auto-flush true, to force each message to broker.
+		// auto-flush forces each message to the broker. Async produce flushes once per batch instead, so replies batch by linger.ms/batch.size.
+		return new KafkaTemplate<>(commitProducerFactory(), false == config.isKafkaAsyncProduce());
+	}
+
+	//--Retry topics carry the original request
+	@Bean
+	public ProducerFactory<String, TraceableMessage<CommitReservationRequest>> retryProducerFactory() throws Exception {
+		
+		TraceableMessageSerializer<TraceableMessage<CommitReservationRequest>> tms = new TraceableMessageSerializer<>(MessageTypes.COMMIT_REQUEST);
+	
+		return new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(), tms);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Bean
+	public KafkaTemplate<String, TraceableMessage<CommitReservationRequest>> retryKafkaTemplate() throws Exception {
+		if ( config.isKafkaExactlyOnce() ) {
+			// Retry and lane forwards go through the transactional reply producer, so they commit or abort with the
+			// replies and offsets of the listener's transaction. Its serializer has a writer for requests too.
+			KafkaTemplate<String, TraceableMessage<CommitReservationRequest>> template =
+					new KafkaTemplate<>((ProducerFactory) commitProducerFactory());
+			template.setAllowNonTransactional(true);
+			return template;
+		}
+		return new KafkaTemplate<>(retryProducerFactory());
 	}
 
 }
@@ -1,14 +1,28 @@
 package qslv.transaction.fulfillment;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.header.Header;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import io.micrometer.core.instrument.Timer;
 import qslv.common.kafka.ResponseMessage;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
@@ -17,12 +31,19 @@ import qslv.transaction.response.CommitReservationResponse;
 @Repository
 public class KafkaProducerDao {
 	private static final Logger log = LoggerFactory.getLogger(KafkaProducerDao.class);
+	private static final String NULL_PAYLOAD_KEY_SUBSTITUTE = "NULL_PAYLOAD_KEY_SUBSTITUTE";
+	public static final String RETRY_ATTEMPT_HEADER = "qslv-retry-attempt";
+	public static final String RETRY_DUE_HEADER = "qslv-retry-due";
 
 	@Autowired
 	private ConfigProperties config;
 
 	@Autowired
 	private KafkaTemplate<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitKafkaTemplate;
+	@Autowired
+	private KafkaTemplate<String, TraceableMessage<CommitReservationRequest>> retryKafkaTemplate;
+	@Autowired
+	private FulfillmentMetrics metrics;
 
 	public void setConfig(ConfigProperties config) {
 		this.config = config;
@@ -31,21 +52,175 @@ public class KafkaProducerDao {
 			KafkaTemplate<String, TraceableMessage<ResponseMessage<CommitReservationRequest, CommitReservationResponse>>> commitKafkaTemplate) {
 		this.commitKafkaTemplate = commitKafkaTemplate;
 	}
+	public void setRetryKafkaTemplate(KafkaTemplate<String, TraceableMessage<CommitReservationRequest>> retryKafkaTemplate) {
+		this.retryKafkaTemplate = retryKafkaTemplate;
+	}
+	public void setMetrics(FulfillmentMetrics metrics) {
+		this.metrics = metrics;
+	}
 
 	public void produceCommit(TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> message) throws DataAccessException {
 		log.trace("ENTRY produceCommit");
+		Timer.Sample sample = metrics.start();
 		try {
-			String key = message.getPayload().getRequest()==null ? "NULL_PAYLOAD_KEY_SUBSTITUTE" : message.getPayload().getRequest().getAccountNumber();
+			String key = messageKey(message.getPayload().getRequest());
 			commitKafkaTemplate.send(config.getKafkaCommitReplyQueue(), key, message).get();
-			log.debug("Kakfa Produce {}", message);
+			metrics.stopProduce(sample, FulfillmentMetrics.SUCCESS);
+			log.debug("Kakfa Produce {} {}", message.getCorrelationId(),
+				message.getPayload().getRequest() == null ? null : message.getPayload().getRequest().getRequestUuid());
 		} catch ( ExecutionException ex ) {
+			metrics.stopProduce(sample, FulfillmentMetrics.FAILURE);
 			log.debug(ex.getLocalizedMessage());
 			throw new TransientDataAccessResourceException("Kafka Producer failure", ex);
 		} catch ( InterruptedException  ex) {
+			metrics.stopProduce(sample, FulfillmentMetrics.FAILURE);
 			log.debug(ex.getLocalizedMessage());
 			throw new TransientDataAccessResourceException("Kafka Producer failure", ex);
 		}
-		// TODO: log time it took
 		log.trace("EXIT produceCommit");
 	}
+
+	/*
+	 * Queue the reply without waiting for the broker. The returned future completes when the reply is durable,
+	 * callers must not acknowledge the request before then. Call flush() to send queued replies without waiting
+	 * for linger.ms.
+	 */
+	public ListenableFuture<SendResult<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>>> 
+			produceCommitAsync(TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> message) throws DataAccessException {
+		log.trace("ENTRY produceCommitAsync");
+		ListenableFuture<SendResult<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>>> future;
+		Timer.Sample sample = metrics.start();
+		try {
+			future = commitKafkaTemplate.send(config.getKafkaCommitReplyQueue(), messageKey(message.getPayload().getRequest()), message);
+		} catch ( org.apache.kafka.common.KafkaException | org.springframework.kafka.KafkaException ex ) {
+			metrics.stopProduce(sample, FulfillmentMetrics.FAILURE);
+			log.debug(ex.getLocalizedMessage());
+			throw new TransientDataAccessResourceException("Kafka Producer failure", ex);
+		}
+		future.addCallback(result -> metrics.stopProduce(sample, FulfillmentMetrics.SUCCESS), 
+				ex -> metrics.stopProduce(sample, FulfillmentMetrics.FAILURE));
+		log.trace("EXIT produceCommitAsync");
+		return future;
+	}
+
+	/*
+	 * Forward a request that failed with a recoverable error so the source partition can move on. Attempt n
+	 * goes to delay tier min(n, tiers) - 1 and carries the time it becomes due; once kafkaRetryAttempts is
+	 * exceeded the request is parked on the dead letter topic.
+	 */
+	public ListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> 
+			produceRetry(TraceableMessage<CommitReservationRequest> message, int attempt) throws DataAccessException {
+		log.trace("ENTRY produceRetry");
+		List<Integer> delays = config.getKafkaRetryDelays();
+		ProducerRecord<String, TraceableMessage<CommitReservationRequest>> record;
+		if ( attempt > config.getKafkaRetryAttempts() || delays.isEmpty() ) {
+			record = new ProducerRecord<>(deadLetterQueue(), messageKey(message.getPayload()), message);
+		} else {
+			int tier = Math.min(attempt, delays.size()) - 1;
+			record = new ProducerRecord<>(retryQueue(tier), messageKey(message.getPayload()), message);
+			long due = System.currentTimeMillis() + delays.get(tier);
+			record.headers().add(RETRY_DUE_HEADER, Long.toString(due).getBytes(StandardCharsets.UTF_8));
+		}
+		record.headers().add(RETRY_ATTEMPT_HEADER, Integer.toString(attempt).getBytes(StandardCharsets.UTF_8));
+
+		ListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> future;
+		try {
+			future = retryKafkaTemplate.send(record);
+		} catch ( org.apache.kafka.common.KafkaException | org.springframework.kafka.KafkaException ex ) {
+			log.debug(ex.getLocalizedMessage());
+			throw new TransientDataAccessResourceException("Kafka Producer failure", ex);
+		}
+		log.debug("Forward attempt {} to {}", attempt, record.topic());
+		log.trace("EXIT produceRetry");
+		return future;
+	}
+
+	/*
+	 * Move a request from the request topic to its priority lane's topic.
+	 */
+	public ListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> 
+			produceLane(TraceableMessage<CommitReservationRequest> message, String lane) throws DataAccessException {
+		log.trace("ENTRY produceLane");
+		ListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> future;
+		try {
+			future = retryKafkaTemplate.send(laneQueue(lane), messageKey(message.getPayload()), message);
+		} catch ( org.apache.kafka.common.KafkaException | org.springframework.kafka.KafkaException ex ) {
+			log.debug(ex.getLocalizedMessage());
+			throw new TransientDataAccessResourceException("Kafka Producer failure", ex);
+		}
+		log.trace("EXIT produceLane");
+		return future;
+	}
+
+	/*
+	 * Percent of the reply producer's buffer.memory holding unsent records, 100 while sends are blocked waiting
+	 * for space, up to max.block.ms.
+	 */
+	public double bufferUsage() {
+		double total = 0.0;
+		double available = 0.0;
+		double waiting = 0.0;
+		for (Map.Entry<MetricName, ? extends Metric> metric : commitKafkaTemplate.metrics().entrySet()) {
+			if ( false == "producer-metrics".equals(metric.getKey().group()) 
+					|| false == metric.getValue().metricValue() instanceof Number ) {
+				continue;
+			}
+			double value = ((Number) metric.getValue().metricValue()).doubleValue();
+			switch (metric.getKey().name()) {
+			case "buffer-total-bytes":
+				total = value;
+				break;
+			case "buffer-available-bytes":
+				available = value;
+				break;
+			case "bufferpool-wait-ratio":
+				waiting = value;
+				break;
+			default:
+				break;
+			}
+		}
+		if ( waiting > 0.0 ) {
+			return 100.0;
+		}
+		return total > 0.0 ? 100.0 * (total - available) / total : 0.0;
+	}
+
+	public List<String> retryQueues() {
+		List<String> queues = new ArrayList<>();
+		for (int tier = 0; tier < config.getKafkaRetryDelays().size(); tier++) {
+			queues.add(retryQueue(tier));
+		}
+		return queues;
+	}
+	public String retryQueue(int tier) {
+		return config.getKafkaCommitRequestQueue() + ".retry." + tier;
+	}
+	public String laneQueue(String lane) {
+		return config.getKafkaCommitRequestQueue() + ".lane." + lane;
+	}
+	public String deadLetterQueue() {
+		return config.getKafkaCommitRequestQueue() + ".dlt";
+	}
+
+	// Attempt number of a forwarded request, 0 when the record came from the request topic.
+	public static int retryAttempt(ConsumerRecord<?, ?> record) {
+		Header header = record.headers().lastHeader(RETRY_ATTEMPT_HEADER);
+		return header == null ? 0 : Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8));
+	}
+
+	// Epoch millis at which a forwarded request may be processed, 0 when it is due now.
+	public static long retryDue(ConsumerRecord<?, ?> record) {
+		Header header = record.headers().lastHeader(RETRY_DUE_HEADER);
+		return header == null ? 0L : Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+	}
+
+	public void flush() {
+		commitKafkaTemplate.flush();
+	}
+
+	// Kafka key for a commit, request and reply are both keyed by account number.
+	public static String messageKey(CommitReservationRequest request) {
+		return request==null ? NULL_PAYLOAD_KEY_SUBSTITUTE : request.getAccountNumber();
+	}
 }
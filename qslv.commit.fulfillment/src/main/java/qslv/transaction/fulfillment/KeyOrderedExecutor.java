@@ -0,0 +1,71 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * Fans work out to a fixed set of single threaded lanes. Every task with the same key runs on the same lane,
+ * so tasks for one key execute in submission order while different keys run concurrently. With virtual threads
+ * a lane costs little more than its queue, so kafkaKeyedConcurrency can be raised to thousands.
+ */
+@Component
+public class KeyOrderedExecutor {
+	private static final Logger log = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+
+	@Autowired
+	private ConfigProperties config;
+
+	private ExecutorService[] lanes = new ExecutorService[0];
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	@PostConstruct
+	public void init() {
+		int concurrency = config.getKafkaKeyedConcurrency();
+		if (concurrency <= 1) {
+			return;
+		}
+		log.info("Starting {} key ordered worker lanes{}.", concurrency, config.isKafkaVirtualThreads() ? " on virtual threads" : "");
+		lanes = new ExecutorService[concurrency];
+		ThreadFactory threadFactory = WorkerThreads.factory("keyed-worker-", config.isKafkaVirtualThreads());
+		for (int ii = 0; ii < concurrency; ii++) {
+			lanes[ii] = Executors.newSingleThreadExecutor(threadFactory);
+		}
+	}
+
+	public boolean isEnabled() {
+		return lanes.length > 1;
+	}
+
+	public <T> Future<T> submit(String key, Callable<T> task) {
+		int lane = (key == null) ? 0 : Math.floorMod(key.hashCode(), lanes.length);
+		return lanes[lane].submit(task);
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		for (ExecutorService lane : lanes) {
+			lane.shutdown();
+		}
+		for (ExecutorService lane : lanes) {
+			if (false == lane.awaitTermination(config.getKafkaTimeout(), TimeUnit.MILLISECONDS)) {
+				log.warn("Worker lane did not finish within {} ms.", config.getKafkaTimeout());
+				lane.shutdownNow();
+			}
+		}
+	}
+}
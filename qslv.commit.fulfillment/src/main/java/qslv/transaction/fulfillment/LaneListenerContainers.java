@@ -0,0 +1,107 @@
+package qslv.transaction.fulfillment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+/*
+ * One listener container per priority lane, with the lane's concurrency. The lane topic needs at least that
+ * many partitions for every consumer to get work.
+ */
+@Component
+public class LaneListenerContainers implements SmartLifecycle {
+	private static final Logger log = LoggerFactory.getLogger(LaneListenerContainers.class);
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private KafkaProducerDao kafkaDao;
+	@Autowired
+	private KafkaCommitListener kafkaCommitListener;
+	@Autowired
+	private PriorityLanes priorityLanes;
+	@Autowired
+	@Qualifier("kafkaListenerContainerFactory")
+	private ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> containerFactory;
+
+	private final List<ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>>> containers = new ArrayList<>();
+	private volatile boolean running = false;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setKafkaDao(KafkaProducerDao kafkaDao) {
+		this.kafkaDao = kafkaDao;
+	}
+	public void setKafkaCommitListener(KafkaCommitListener kafkaCommitListener) {
+		this.kafkaCommitListener = kafkaCommitListener;
+	}
+	public void setPriorityLanes(PriorityLanes priorityLanes) {
+		this.priorityLanes = priorityLanes;
+	}
+	public void setContainerFactory(ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> containerFactory) {
+		this.containerFactory = containerFactory;
+	}
+
+	@Override
+	public synchronized void start() {
+		if ( containers.isEmpty() ) {
+			config.getKafkaLanes().forEach((lane, properties) -> {
+				ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> container =
+						containerFactory.createContainer(kafkaDao.laneQueue(lane));
+				container.setBeanName("lane-" + lane);
+				container.setConcurrency(properties.getConcurrency());
+				Properties consumerProperties = new Properties(container.getContainerProperties().getKafkaConsumerProperties());
+				consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(priorityLanes.maxPollRecords(lane)));
+				container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+				container.getContainerProperties().setMessageListener(
+						(AcknowledgingMessageListener<String, TraceableMessage<CommitReservationRequest>>) (data, acknowledgment) ->
+							kafkaCommitListener.onLaneMessage(lane, data, acknowledgment));
+				containers.add(container);
+			});
+		}
+		for (ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> container : containers) {
+			log.info("Starting lane listener {}", container.getContainerProperties().getTopics()[0]);
+			container.start();
+		}
+		running = true;
+	}
+
+	@Override
+	public synchronized void stop() {
+		for (ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> container : containers) {
+			container.stop();
+		}
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	// Start and stop alongside the @KafkaListener containers.
+	@Override
+	public int getPhase() {
+		return AbstractMessageListenerContainer.DEFAULT_PHASE;
+	}
+
+	public List<ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>>> getContainers() {
+		return containers;
+	}
+}
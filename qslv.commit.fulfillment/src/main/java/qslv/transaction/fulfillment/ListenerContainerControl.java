@@ -0,0 +1,132 @@
+package qslv.transaction.fulfillment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+/*
+ * Pauses and resumes every listener container, request, retry and lane topics alike. Each caller pauses under
+ * its own reason and consumption resumes only when no reason is left, so independent controls do not
+ * resume each other's pause.
+ */
+@Component
+public class ListenerContainerControl {
+	private static final Logger log = LoggerFactory.getLogger(ListenerContainerControl.class);
+	public static final String BREAKER_OPEN = "breaker-open";
+	public static final String CONCURRENCY_LIMIT = "concurrency-limit";
+	public static final String DRAINING = "draining";
+	public static final String BACKPRESSURE = "backpressure";
+
+	@Autowired
+	private KafkaListenerEndpointRegistry registry;
+	@Autowired
+	private RetryListenerContainers retryListenerContainers;
+	@Autowired
+	private LaneListenerContainers laneListenerContainers;
+	@Autowired
+	private CircuitBreaker commitServiceBreaker;
+	@Autowired
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+	@Autowired
+	private ListenerDrain listenerDrain;
+	@Autowired
+	private BackpressureController backpressureController;
+
+	private final Set<String> reasons = ConcurrentHashMap.newKeySet();
+
+	public void setRegistry(KafkaListenerEndpointRegistry registry) {
+		this.registry = registry;
+	}
+	public void setRetryListenerContainers(RetryListenerContainers retryListenerContainers) {
+		this.retryListenerContainers = retryListenerContainers;
+	}
+	public void setLaneListenerContainers(LaneListenerContainers laneListenerContainers) {
+		this.laneListenerContainers = laneListenerContainers;
+	}
+	public void setCommitServiceBreaker(CircuitBreaker commitServiceBreaker) {
+		this.commitServiceBreaker = commitServiceBreaker;
+	}
+	public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+	public void setListenerDrain(ListenerDrain listenerDrain) {
+		this.listenerDrain = listenerDrain;
+	}
+	public void setBackpressureController(BackpressureController backpressureController) {
+		this.backpressureController = backpressureController;
+	}
+
+	/*
+	 * Stop polling while the commit service breaker is open, half-open probes are sent by resumed listeners.
+	 * Also stop while every commit call slot is taken, so records wait on Kafka rather than in memory, while
+	 * the commit service or reply producer is under backpressure, and for good once the service drains for
+	 * shutdown. A paused container keeps polling without fetching, so the consumer stays in the group.
+	 */
+	@PostConstruct
+	public void init() {
+		concurrencyLimiter.onSaturation(saturated -> {
+			if ( saturated ) {
+				pause(CONCURRENCY_LIMIT);
+			} else {
+				resume(CONCURRENCY_LIMIT);
+			}
+		});
+		commitServiceBreaker.getEventPublisher().onStateTransition(event -> {
+			CircuitBreaker.State state = event.getStateTransition().getToState();
+			if ( state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN ) {
+				pause(BREAKER_OPEN);
+			} else {
+				resume(BREAKER_OPEN);
+			}
+		});
+		backpressureController.onPressure(pressure -> {
+			if ( pressure ) {
+				pause(BACKPRESSURE);
+			} else {
+				resume(BACKPRESSURE);
+			}
+		});
+		listenerDrain.onDrain(() -> pause(DRAINING));
+	}
+
+	public synchronized void pause(String reason) {
+		if ( reasons.add(reason) && reasons.size() == 1 ) {
+			log.info("Pausing listeners. {}", reason);
+			for (MessageListenerContainer container : containers()) {
+				container.pause();
+			}
+		}
+	}
+
+	public synchronized void resume(String reason) {
+		if ( reasons.remove(reason) && reasons.isEmpty() ) {
+			log.info("Resuming listeners. {}", reason);
+			for (MessageListenerContainer container : containers()) {
+				container.resume();
+			}
+		}
+	}
+
+	public boolean isPaused() {
+		return false == reasons.isEmpty();
+	}
+
+	private List<MessageListenerContainer> containers() {
+		List<MessageListenerContainer> containers = new ArrayList<>(registry.getListenerContainers());
+		containers.addAll(retryListenerContainers.getContainers());
+		containers.addAll(laneListenerContainers.getContainers());
+		return containers;
+	}
+}
@@ -0,0 +1,138 @@
+package qslv.transaction.fulfillment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Drains the listeners on shutdown. Stops before the listener containers: it marks the service as draining so
+ * records not yet started are returned to Kafka, tells the drain listeners (ListenerContainerControl pauses the
+ * containers so nothing more is fetched), waits up to kafkaDrainTimeout ms for the listener calls in flight to
+ * finish and flushes the reply producer. The containers then stop and commit the offsets acknowledged during
+ * the drain.
+ */
+@Component
+public class ListenerDrain implements SmartLifecycle, MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(ListenerDrain.class);
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private KafkaProducerDao kafkaDao;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition idle = lock.newCondition();
+	private int inFlight = 0;
+	private volatile boolean draining = false;
+	private volatile boolean running = false;
+	private final List<Runnable> drainListeners = new CopyOnWriteArrayList<>();
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setKafkaDao(KafkaProducerDao kafkaDao) {
+		this.kafkaDao = kafkaDao;
+	}
+
+	public void onDrain(Runnable listener) {
+		drainListeners.add(listener);
+	}
+
+	// Called by the listeners around every invocation.
+	public void begin() {
+		lock.lock();
+		try {
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void end() {
+		lock.lock();
+		try {
+			if ( --inFlight == 0 ) {
+				idle.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isDraining() {
+		return draining;
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void start() {
+		draining = false;
+		running = true;
+	}
+
+	@Override
+	public void stop() {
+		log.info("Draining listeners, {} calls in flight.", getInFlight());
+		draining = true;
+		for (Runnable listener : drainListeners) {
+			listener.run();
+		}
+
+		lock.lock();
+		try {
+			long wait = TimeUnit.MILLISECONDS.toNanos(config.getKafkaDrainTimeout());
+			while ( inFlight > 0 && wait > 0 ) {
+				wait = idle.awaitNanos(wait);
+			}
+			if ( inFlight > 0 ) {
+				log.warn("Drain timeout. {} listener calls still in flight.", inFlight);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			lock.unlock();
+		}
+
+		kafkaDao.flush();
+		running = false;
+		log.info("Listeners drained.");
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	// Stop ahead of the listener containers, they stop once the drain is done.
+	@Override
+	public int getPhase() {
+		return AbstractMessageListenerContainer.DEFAULT_PHASE + 1;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("qslv.fulfillment.inflight", this, ListenerDrain::getInFlight)
+			.description("Listener calls in flight").register(registry);
+	}
+}
@@ -0,0 +1,45 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+/*
+ * Per record trace on its own logger, which logback-spring.xml sends through the non-blocking async appender.
+ * One record in logTraceSample is traced, 0 disables it. Only identifying fields are logged, never the payload,
+ * so the listener thread does no payload formatting and no synchronous I/O.
+ */
+@Component
+public class MessageTraceLog {
+	public static final String LOGGER = "qslv.fulfillment.trace";
+	private static final Logger trace = LoggerFactory.getLogger(LOGGER);
+
+	@Autowired
+	private ConfigProperties config;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	public void sample(ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record) {
+		int sample = config.getLogTraceSample();
+		if ( sample <= 0 || false == trace.isInfoEnabled() ) {
+			return;
+		}
+		if ( sample > 1 && ThreadLocalRandom.current().nextInt(sample) != 0 ) {
+			return;
+		}
+		TraceableMessage<CommitReservationRequest> message = record.value();
+		trace.info("topic={} partition={} offset={} correlationId={} accountNumber={}",
+				record.topic(), record.partition(), record.offset(),
+				message == null ? null : message.getCorrelationId(),
+				message == null || message.getPayload() == null ? null : message.getPayload().getAccountNumber());
+	}
+}
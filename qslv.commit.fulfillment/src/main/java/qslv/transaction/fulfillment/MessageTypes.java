@@ -0,0 +1,36 @@
+package qslv.transaction.fulfillment;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Kafka message types and the mapper the serializers build their cached readers and writers from. The mapper
+ * is set up like the one in JacksonAvroSerializer and JacksonAvroDeserializer, so messages are written and read
+ * in the same form other services produce and expect.
+ */
+public final class MessageTypes {
+	public static final JavaType COMMIT_REQUEST = TypeFactory.defaultInstance()
+			.constructParametricType(TraceableMessage.class, CommitReservationRequest.class);
+	public static final JavaType COMMIT_REPLY = TypeFactory.defaultInstance()
+			.constructParametricType(TraceableMessage.class, TypeFactory.defaultInstance()
+					.constructParametricType(ResponseMessage.class, CommitReservationRequest.class, CommitReservationResponse.class));
+
+	private MessageTypes() {
+	}
+
+	public static ObjectMapper mapper() {
+		return new ObjectMapper()
+				.registerModule(new JavaTimeModule())
+				.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL)
+				.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	}
+}
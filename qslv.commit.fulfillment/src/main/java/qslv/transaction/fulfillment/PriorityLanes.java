@@ -0,0 +1,132 @@
+package qslv.transaction.fulfillment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import qslv.common.kafka.TraceableMessage;
+
+/*
+ * Routes requests to the priority lanes in kafkaLanes by business taxonomy or producer AIT, first matching lane
+ * wins. A matched request is moved from the request topic to the lane's topic and processed there by
+ * LaneListenerContainers, so a flood of bulk commits sits on its own topic at its own pace instead of ahead of
+ * customer facing commits on the request partitions. Requests for one account in different lanes are no longer
+ * processed in order.
+ */
+@Component
+public class PriorityLanes implements MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(PriorityLanes.class);
+	// Seconds of rate limited work taken in one poll, well inside the consumer's 300 second max.poll.interval.ms.
+	private static final int POLL_SECONDS = 60;
+
+	@Autowired
+	private ConfigProperties config;
+
+	private final Map<String, String> lanesByTaxonomy = new HashMap<>();
+	private final Map<String, String> lanesByAit = new HashMap<>();
+	private final Map<String, RateLimiter> rateLimiters = new HashMap<>();
+	private final Map<String, Counter> routed = new HashMap<>();
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	@PostConstruct
+	public void init() {
+		Set<String> lanes = new HashSet<>();
+		for (Map.Entry<String, ConfigProperties.Lane> entry : config.getKafkaLanes().entrySet()) {
+			String lane = entry.getKey();
+			lanes.add(lane);
+			for (String taxonomy : entry.getValue().getBusinessTaxonomyIds()) {
+				lanesByTaxonomy.putIfAbsent(taxonomy, lane);
+			}
+			for (String ait : entry.getValue().getProducerAits()) {
+				lanesByAit.putIfAbsent(ait, lane);
+			}
+			if ( entry.getValue().getRate() > 0 ) {
+				rateLimiters.put(lane, new RateLimiter(entry.getValue().getRate()));
+			}
+		}
+		if ( false == lanes.isEmpty() ) {
+			log.info("Priority lanes {}", lanes);
+		}
+	}
+
+	public boolean isEnabled() {
+		return false == config.getKafkaLanes().isEmpty();
+	}
+
+	public List<String> lanes() {
+		return new ArrayList<>(config.getKafkaLanes().keySet());
+	}
+
+	// The lane for a request taken from the request topic, null to process it there.
+	public String laneFor(TraceableMessage<?> message) {
+		if ( false == isEnabled() ) {
+			return null;
+		}
+		String lane = lanesByTaxonomy.get(message.getBusinessTaxonomyId());
+		if ( null == lane ) {
+			lane = lanesByAit.get(message.getProducerAit());
+		}
+		if ( null != lane && routed.containsKey(lane) ) {
+			routed.get(lane).increment();
+		}
+		return lane;
+	}
+
+	/*
+	 * Records a lane consumer takes in one poll. acquire blocks the listener thread, so a poll of a rate limited
+	 * lane is capped at POLL_SECONDS of permits, shared between the lane's consumers, to finish before the
+	 * consumer is evicted from the group.
+	 */
+	public int maxPollRecords(String lane) {
+		ConfigProperties.Lane properties = config.getKafkaLanes().get(lane);
+		if ( null == properties || properties.getRate() <= 0 ) {
+			return config.getKafkaMaxPollRecords();
+		}
+		long records = (long) properties.getRate() * POLL_SECONDS / Math.max(1, properties.getConcurrency());
+		return (int) Math.max(1L, Math.min(config.getKafkaMaxPollRecords(), records));
+	}
+
+	// Blocks the lane's listener thread until the lane's rate allows another request.
+	public void acquire(String lane) {
+		RateLimiter rateLimiter = rateLimiters.get(lane);
+		if ( null == rateLimiter ) {
+			return;
+		}
+		long wait = rateLimiter.reserve();
+		if ( wait <= 0L ) {
+			return;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (String lane : config.getKafkaLanes().keySet()) {
+			routed.put(lane, Counter.builder("qslv.fulfillment.lane.routed")
+				.description("Requests moved to a priority lane")
+				.tag("lane", lane)
+				.register(registry));
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package qslv.transaction.fulfillment;
+
+/*
+ * Spaces calls evenly at permitsPerSecond, saving up at most one second of unused permits for a burst. A
+ * caller is told how long to wait for its permit; permits are handed out in turn, so waits queue up behind
+ * each other rather than all landing at once.
+ */
+public class RateLimiter {
+	private final double permitsPerSecond;
+	private double permits;
+	private long lastNanos = System.nanoTime();
+
+	public RateLimiter(double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.permits = permitsPerSecond;
+	}
+
+	// Takes a permit, returns the nanoseconds to wait before using it.
+	public synchronized long reserve() {
+		long now = System.nanoTime();
+		permits = Math.min(permitsPerSecond, permits + (now - lastNanos) / 1_000_000_000.0 * permitsPerSecond);
+		lastNanos = now;
+		permits -= 1.0;
+		return permits >= 0.0 ? 0L : (long) (-permits / permitsPerSecond * 1_000_000_000.0);
+	}
+}
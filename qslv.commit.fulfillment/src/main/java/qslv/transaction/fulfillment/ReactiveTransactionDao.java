@@ -0,0 +1,222 @@
+package qslv.transaction.fulfillment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Repository;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Timer;
+import qslv.common.TimedResponse;
+import qslv.common.TraceableRequest;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+import qslv.util.ServiceLevelIndicator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/*
+ * Non-blocking counterpart of TransactionDao on WebClient. A call holds no thread while it waits, so a few event
+ * loop threads keep a whole poll's commits in flight. Retries, backoff, circuit breaker, concurrency limit, timers
+ * and exceptions match the blocking path; failures are mapped to the exceptions RestTemplate throws so both paths
+ * are classified alike.
+ */
+@Repository
+public class ReactiveTransactionDao {
+	private static final Logger log = LoggerFactory.getLogger(ReactiveTransactionDao.class);
+	private static final String SLI_NAME = "POST /Transaction";
+	private static final long LIMIT_POLL = 5L;
+	private static ParameterizedTypeReference<TimedResponse<CommitReservationResponse>> commitResponseType =
+			new ParameterizedTypeReference<TimedResponse<CommitReservationResponse>>() {};
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private WebClient commitServiceWebClient;
+	@Autowired
+	private TransactionDao transactionDao;
+	@Autowired
+	private CircuitBreaker commitServiceBreaker;
+	@Autowired
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+	@Autowired
+	private FulfillmentMetrics metrics;
+	@Autowired
+	private RetryBudget retryBudget;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setCommitServiceWebClient(WebClient commitServiceWebClient) {
+		this.commitServiceWebClient = commitServiceWebClient;
+	}
+	public void setTransactionDao(TransactionDao transactionDao) {
+		this.transactionDao = transactionDao;
+	}
+	public void setCommitServiceBreaker(CircuitBreaker commitServiceBreaker) {
+		this.commitServiceBreaker = commitServiceBreaker;
+	}
+	public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+	public void setMetrics(FulfillmentMetrics metrics) {
+		this.metrics = metrics;
+	}
+	public void setRetryBudget(RetryBudget retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
+	/*
+	 * Nothing is sent until the returned Mono is subscribed.
+	 */
+	public Mono<CommitReservationResponse> commitReservation(final TraceableMessage<?> message, final CommitReservationRequest request) {
+		log.trace("commitReservation ENTRY");
+		String url = config.getCommitReservationUrl();
+
+		HttpHeaders headers = transactionDao.buildHeaders(message);
+		headers.add(TraceableRequest.ACCEPT_VERSION, CommitReservationRequest.VERSION_1_0);
+
+		// Same policy as the RetryTemplate: classified and budgeted retries with decorrelated jitter, the last
+		// failure is thrown when exhausted or refused by the budget.
+		AtomicLong backoff = new AtomicLong(config.getRestBackoffDelay());
+		Mono<ResponseEntity<TimedResponse<CommitReservationResponse>>> retried = limited(exchange(url, headers, request))
+				.retryWhen(Retry.max(config.getRestAttempts() - 1)
+						.filter(CommitRetryPolicy::isRetryable)
+						.doBeforeRetryAsync(signal -> {
+							if ( false == retryBudget.tryWithdraw() ) {
+								return Mono.error(signal.failure());
+							}
+							metrics.incrementRestRetries();
+							long wait = backoff.updateAndGet(previous -> DecorrelatedJitterBackOffPolicy.next(previous,
+									config.getRestBackoffDelay(), config.getRestBackoffDelayMax()));
+							return Mono.delay(Duration.ofMillis(wait)).then();
+						})
+						.onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+				.doOnSuccess(response -> retryBudget.deposit());
+		Mono<ResponseEntity<TimedResponse<CommitReservationResponse>>> call = config.isRestBreakerEnabled()
+				? retried.transform(CircuitBreakerOperator.of(commitServiceBreaker)) : retried;
+
+		return Mono.defer(() -> {
+			Timer.Sample sample = metrics.start();
+			return call
+					.doOnSuccess(response -> metrics.stopRest(sample, url, FulfillmentMetrics.SUCCESS))
+					.onErrorMap(ex -> failure(sample, url, ex));
+		}).map(response -> {
+			if (!response.hasBody() || !response.getStatusCode().equals(HttpStatus.CREATED) ) {
+				String msg = String.format("Unexpected return from %s Service. %s", url, response.toString());
+				log.error(msg);
+				throw new NonTransientDataAccessResourceException(msg);
+			}
+			CommitReservationResponse commitResponse = response.getBody().getPayload();
+			transactionDao.verifyCommitted(url, commitResponse);
+			log.trace("commitReservation EXIT");
+			return commitResponse;
+		});
+	}
+
+	private Throwable failure(Timer.Sample sample, String url, Throwable ex) {
+		if ( ex instanceof CallNotPermittedException ) {
+			metrics.stopRest(sample, url, FulfillmentMetrics.REJECTED);
+			String msg = String.format("Circuit breaker %s is %s. POST %s not attempted.",
+					commitServiceBreaker.getName(), commitServiceBreaker.getState(), url);
+			log.debug(msg);
+			return new TransientDataAccessResourceException(msg, ex);
+		}
+		metrics.stopRest(sample, url, FulfillmentMetrics.FAILURE);
+		if ( CommitRetryPolicy.isRetryable(ex) ) {
+			String msg = String.format("Exhausted %d retries for POST %s. %s", config.getRestAttempts(), url, 
+					ex.getLocalizedMessage());
+			log.warn(msg);
+			return new TransientDataAccessResourceException(msg, ex);
+		}
+		log.error(ex.getLocalizedMessage());
+		return ex;
+	}
+
+	/*
+	 * One POST attempt, timed out after restTimeout ms and logged as a service level indicator like the
+	 * @RemoteServiceSLI on RestTemplateProxy.
+	 */
+	private Mono<ResponseEntity<TimedResponse<CommitReservationResponse>>> exchange(String url, HttpHeaders headers,
+			CommitReservationRequest request) {
+		return Mono.defer(() -> {
+			LocalDateTime start = LocalDateTime.now();
+			return commitServiceWebClient.post()
+					.uri(url)
+					.headers(httpHeaders -> httpHeaders.addAll(headers))
+					.bodyValue(request)
+					.retrieve()
+					.toEntity(commitResponseType)
+					.timeout(Duration.ofMillis(config.getRestTimeout()))
+					.onErrorMap(ReactiveTransactionDao::toRestClientException)
+					.doFinally(signal -> ServiceLevelIndicator.logAsyncServiceElapsedTime(log, SLI_NAME, config.getAitid(), start));
+		});
+	}
+
+	/*
+	 * With the concurrency limit enabled an attempt polls for a slot every LIMIT_POLL ms, for up to
+	 * restConnectionRequestTimeout ms, instead of waiting on the limiter's monitor on an event loop thread.
+	 */
+	private <T> Mono<T> limited(Mono<T> attempt) {
+		if ( false == concurrencyLimiter.isEnabled() ) {
+			return attempt;
+		}
+		long polls = Math.max(1L, config.getRestConnectionRequestTimeout() / LIMIT_POLL);
+		return Mono.fromCallable(concurrencyLimiter::tryAcquire)
+				.filter(acquired -> acquired)
+				.repeatWhenEmpty(empty -> empty.delayElements(Duration.ofMillis(LIMIT_POLL)).take(polls))
+				.switchIfEmpty(Mono.error(() -> new TransientDataAccessResourceException(
+						String.format("Concurrency limit %d reached.", concurrencyLimiter.getLimit()))))
+				.flatMap(acquired -> {
+					long start = System.currentTimeMillis();
+					AtomicBoolean dropped = new AtomicBoolean();
+					return attempt
+							.doOnError(ex -> dropped.set(ex instanceof ResourceAccessException || ex instanceof HttpServerErrorException))
+							.doFinally(signal -> concurrencyLimiter.release(System.currentTimeMillis() - start, dropped.get()));
+				});
+	}
+
+	private static Throwable toRestClientException(Throwable ex) {
+		if ( ex instanceof WebClientResponseException ) {
+			WebClientResponseException response = (WebClientResponseException) ex;
+			HttpStatus status = HttpStatus.resolve(response.getRawStatusCode());
+			if ( status != null && status.is5xxServerError() ) {
+				return HttpServerErrorException.create(status, response.getStatusText(), response.getHeaders(),
+						response.getResponseBodyAsByteArray(), StandardCharsets.UTF_8);
+			}
+			if ( status != null && status.is4xxClientError() ) {
+				return HttpClientErrorException.create(status, response.getStatusText(), response.getHeaders(),
+						response.getResponseBodyAsByteArray(), StandardCharsets.UTF_8);
+			}
+			return ex;
+		}
+		if ( ex instanceof RestClientException || ex instanceof DataAccessException ) {
+			return ex;
+		}
+		return new ResourceAccessException("I/O error on POST request: " + ex.toString(),
+				ex instanceof IOException ? (IOException) ex : new IOException(ex));
+	}
+}
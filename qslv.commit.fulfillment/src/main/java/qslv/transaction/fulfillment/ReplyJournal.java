@@ -0,0 +1,425 @@
+package qslv.transaction.fulfillment;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Write-ahead journal of commits whose reply is not yet on Kafka. A successful commit is appended before the
+ * reply is produced and marked acknowledged once the reply is durable, so a request redelivered after a failed
+ * produce, or after a restart, is answered from here rather than committed again. Records go to memory-mapped
+ * segments of replyJournalSegmentSize bytes under replyJournalPath, which outlive a crash of the process but
+ * not of the node. When a segment fills, a new one is started and the pending commits of the older segments
+ * are copied forward before those are deleted and unmapped; commits pending longer than commitCacheTtl ms are
+ * dropped then. Acknowledgements arrive on the producer's network thread, so they only leave the index there;
+ * writing them, and the compaction after a roll, happen on the reply-journal thread. A crash before an
+ * acknowledgement is written replays its commit, which is answered again from the journal. Startup replays the
+ * segments in order, stopping at the first torn record. An empty replyJournalPath disables the journal.
+ */
+@Component
+public class ReplyJournal implements MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(ReplyJournal.class);
+	private static final String SEGMENT_PREFIX = "replies-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final byte COMMIT = 1;
+	private static final byte ACKNOWLEDGE = 2;
+	// length, crc32 | type, request uuid, timestamp, response json
+	private static final int HEADER = 4 + 4;
+	private static final int FIXED_BODY = 1 + 16 + 8;
+	// Longest close waits for queued acknowledgements and compaction.
+	private static final long CLOSE_TIMEOUT = 30000L;
+
+	@Autowired
+	private ConfigProperties config;
+
+	private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+	private Path directory;
+	private long segment = -1L;
+	private MappedByteBuffer active;
+	// Rolled segments still mapped, until compaction deletes them.
+	private final Map<Long, MappedByteBuffer> retired = new HashMap<>();
+	private boolean compacting = false;
+	private boolean rolled = false;
+	private ExecutorService journalThread;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	public boolean isEnabled() {
+		return StringUtils.hasText(config.getReplyJournalPath());
+	}
+
+	@PostConstruct
+	public void init() throws IOException {
+		if ( false == isEnabled() ) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		directory = Paths.get(config.getReplyJournalPath());
+		Files.createDirectories(directory);
+		journalThread = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "reply-journal");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Long> segments = segments();
+		for (long seq : segments) {
+			if ( active != null ) {
+				retired.put(segment, active);
+			}
+			segment = seq;
+			active = map(seq);
+			recover(active);
+		}
+		if ( segments.isEmpty() ) {
+			roll();
+		}
+		log.info("Reply journal {} recovered {} pending replies from {} segments in {} ms.", directory,
+				pending.size(), segments.size(), System.currentTimeMillis() - start);
+	}
+
+	@PreDestroy
+	public void close() {
+		if ( journalThread != null ) {
+			journalThread.shutdown();
+			try {
+				journalThread.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		lock.lock();
+		try {
+			if ( active != null ) {
+				active.force();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public CommitReservationResponse get(UUID requestUuid) {
+		Pending entry = isEnabled() ? pending.get(requestUuid) : null;
+		if ( entry == null ) {
+			return null;
+		}
+		try {
+			return mapper.readValue(entry.response, CommitReservationResponse.class);
+		} catch (IOException ex) {
+			log.warn("Journal entry {} unreadable. {}", requestUuid, ex.toString());
+			return null;
+		}
+	}
+
+	public void append(UUID requestUuid, CommitReservationResponse response) {
+		if ( false == isEnabled() ) {
+			return;
+		}
+		byte[] json;
+		try {
+			json = mapper.writeValueAsBytes(response);
+		} catch (IOException ex) {
+			throw new NonTransientDataAccessResourceException("Commit response not journaled.", ex);
+		}
+		if ( HEADER + FIXED_BODY + json.length + 4 > config.getReplyJournalSegmentSize() ) {
+			log.warn("Commit response {} larger than a journal segment. Not journaled.", requestUuid);
+			return;
+		}
+		Pending entry = new Pending(json, System.currentTimeMillis());
+		boolean compact;
+		lock.lock();
+		try {
+			entry.segment = write(COMMIT, requestUuid, entry.timestamp, json);
+			pending.put(requestUuid, entry);
+			compact = takeRolled();
+		} finally {
+			lock.unlock();
+		}
+		if ( compact ) {
+			try {
+				journalThread.execute(this::compact);
+			} catch (RejectedExecutionException ex) {
+				log.debug("Journal closed, segments before {} not compacted.", entry.segment);
+			}
+		}
+	}
+
+	// The reply is durable, the commit no longer needs replaying. Safe on the producer's network thread.
+	public void acknowledge(UUID requestUuid) {
+		if ( false == isEnabled() || requestUuid == null || pending.remove(requestUuid) == null ) {
+			return;
+		}
+		long timestamp = System.currentTimeMillis();
+		try {
+			journalThread.execute(() -> {
+				boolean compact;
+				lock.lock();
+				try {
+					write(ACKNOWLEDGE, requestUuid, timestamp, new byte[0]);
+					compact = takeRolled();
+				} finally {
+					lock.unlock();
+				}
+				if ( compact ) {
+					compact();
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			log.debug("Journal closed, acknowledgement of {} not written.", requestUuid);
+		}
+	}
+
+	public int getPending() {
+		return pending.size();
+	}
+
+	// Called holding the lock. Returns the segment written to.
+	private long write(byte type, UUID requestUuid, long timestamp, byte[] payload) {
+		int length = FIXED_BODY + payload.length;
+		if ( active.remaining() < HEADER + length + 4 ) {
+			roll();
+		}
+		int position = active.position();
+		active.position(position + HEADER);
+		active.put(type);
+		active.putLong(requestUuid.getMostSignificantBits());
+		active.putLong(requestUuid.getLeastSignificantBits());
+		active.putLong(timestamp);
+		active.put(payload);
+		int end = active.position();
+		// Zero length marks the end of the data for recovery.
+		active.putInt(end, 0);
+		active.putInt(position, length);
+		active.putInt(position + 4, crc(active, position + HEADER, length));
+		return segment;
+	}
+
+	/*
+	 * Start a new segment. Called holding the lock. Unless this roll comes from compaction itself, the writer
+	 * has the reply-journal thread compact the older segments once it has released the lock.
+	 */
+	private void roll() {
+		try {
+			MappedByteBuffer next = map(segment + 1);
+			if ( active != null ) {
+				retired.put(segment, active);
+			}
+			segment++;
+			active = next;
+		} catch (IOException ex) {
+			throw new NonTransientDataAccessResourceException("Reply journal segment roll failed.", ex);
+		}
+		rolled = rolled || false == compacting;
+	}
+
+	// Called holding the lock.
+	private boolean takeRolled() {
+		boolean taken = rolled;
+		rolled = false;
+		return taken;
+	}
+
+	/*
+	 * Commits still pending in older segments are copied into the active one, or dropped once older than
+	 * commitCacheTtl, and the older segments flushed, deleted and unmapped.
+	 */
+	private void compact() {
+		long first;
+		List<MappedByteBuffer> copies = new ArrayList<>();
+		List<MappedByteBuffer> replaced = new ArrayList<>();
+		lock.lock();
+		try {
+			compacting = true;
+			first = segment;
+			long expired = System.currentTimeMillis() - config.getCommitCacheTtl();
+			for (Map.Entry<UUID, Pending> entry : new ArrayList<>(pending.entrySet())) {
+				Pending value = entry.getValue();
+				if ( value.segment >= first ) {
+					continue;
+				}
+				if ( value.timestamp < expired ) {
+					pending.remove(entry.getKey());
+				} else {
+					value.segment = write(COMMIT, entry.getKey(), value.timestamp, value.response);
+				}
+			}
+			copies.add(active);
+			for (Iterator<Map.Entry<Long, MappedByteBuffer>> it = retired.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<Long, MappedByteBuffer> entry = it.next();
+				if ( entry.getKey() < first ) {
+					replaced.add(entry.getValue());
+					it.remove();
+				} else {
+					// Filled by the copies themselves.
+					copies.add(entry.getValue());
+				}
+			}
+		} catch (RuntimeException ex) {
+			log.warn("Reply journal compaction failed. {}", ex.toString());
+			return;
+		} finally {
+			compacting = false;
+			lock.unlock();
+		}
+		// Only this thread unmaps, so the buffers stay valid while they are flushed.
+		copies.forEach(MappedByteBuffer::force);
+		try {
+			for (long seq : segments()) {
+				if ( seq < first ) {
+					Files.deleteIfExists(segmentPath(seq));
+				}
+			}
+		} catch (IOException ex) {
+			log.warn("Reply journal segments before {} not deleted. {}", first, ex.toString());
+		}
+		replaced.forEach(ReplyJournal::unmap);
+	}
+
+	private void recover(MappedByteBuffer buffer) {
+		buffer.position(0);
+		try {
+			while ( buffer.remaining() >= HEADER ) {
+				int position = buffer.position();
+				int length = buffer.getInt();
+				int crc = buffer.getInt();
+				if ( length < FIXED_BODY || length > buffer.remaining() || crc != crc(buffer, position + HEADER, length) ) {
+					buffer.position(position);
+					break;
+				}
+				byte type = buffer.get();
+				UUID requestUuid = new UUID(buffer.getLong(), buffer.getLong());
+				long timestamp = buffer.getLong();
+				byte[] payload = new byte[length - FIXED_BODY];
+				buffer.get(payload);
+				if ( type == COMMIT ) {
+					Pending entry = new Pending(payload, timestamp);
+					entry.segment = segment;
+					pending.put(requestUuid, entry);
+				} else {
+					pending.remove(requestUuid);
+				}
+			}
+		} catch (BufferUnderflowException ex) {
+			log.warn("Reply journal segment {} ends in a torn record.", segment);
+		}
+	}
+
+	private static int crc(MappedByteBuffer buffer, int offset, int length) {
+		CRC32 crc = new CRC32();
+		for (int i = offset; i < offset + length; i++) {
+			crc.update(buffer.get(i));
+		}
+		return (int) crc.getValue();
+	}
+
+	private MappedByteBuffer map(long seq) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segmentPath(seq).toFile(), "rw")) {
+			return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, config.getReplyJournalSegmentSize());
+		}
+	}
+
+	/*
+	 * A mapping is otherwise only released when the buffer is garbage collected, keeping deleted segments
+	 * on disk and in the address space. No buffer may be touched after this.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner;
+			try {
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (NoSuchMethodException ex) {
+				// Java 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if ( cleaner != null ) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+				return;
+			}
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			log.debug("Reply journal segment left to be unmapped by the garbage collector. {}", ex.toString());
+		}
+	}
+
+	private List<Long> segments() throws IOException {
+		List<Long> segments = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private Path segmentPath(long seq) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("qslv.fulfillment.journal.pending", this, ReplyJournal::getPending)
+			.description("Committed requests whose reply is not yet durable")
+			.register(registry);
+	}
+
+	private static class Pending {
+		private final byte[] response;
+		private final long timestamp;
+		private long segment;
+
+		Pending(byte[] response, long timestamp) {
+			this.response = response;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/*
+ * Hedged commit service attempts. An attempt still unanswered after the restHedgePercentile latency of recent
+ * attempts, and never sooner than restHedgeDelayMin ms, gets a second identical POST and the first answer wins.
+ * The commit is idempotent by requestUuid, so the loser is harmless. Hedges are held to restHedgeBudget percent
+ * of attempts; when every call is slow, as in an outage, the budget runs dry rather than doubling the load.
+ */
+@Component
+public class RequestHedger {
+	// Latency snapshots are costly, the hedge delay is recomputed at most this often.
+	private static final long DELAY_REFRESH = 1000L;
+	private static final double MAX_SAVED_HEDGES = 10.0;
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private MeterRegistry registry;
+
+	private ExecutorService hedgeExecutor;
+	private CallBudget budget;
+	private Timer attemptTimer;
+	private volatile long hedgeDelay;
+	private volatile long delayRefreshed = 0L;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setRegistry(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@PostConstruct
+	public void init() {
+		if ( isEnabled() ) {
+			hedgeExecutor = Executors.newCachedThreadPool(WorkerThreads.factory("rest-hedge-", config.isKafkaVirtualThreads()));
+			budget = new CallBudget(config.getRestHedgeBudget() / 100.0, MAX_SAVED_HEDGES);
+			attemptTimer = Timer.builder("qslv.rest.attempt")
+					.description("Single commit service attempt")
+					.publishPercentiles(config.getRestHedgePercentile() / 100.0)
+					.register(registry);
+			hedgeDelay = config.getRestHedgeDelayMin();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if ( hedgeExecutor != null ) {
+			hedgeExecutor.shutdown();
+		}
+	}
+
+	public boolean isEnabled() {
+		return config.isRestHedgeEnabled();
+	}
+
+	/*
+	 * Runs the attempt, hedged when enabled. The exception of the last attempt to fail is thrown as is, so
+	 * the retry template and breaker classify it as they would an unhedged one.
+	 */
+	public <T> T execute(Supplier<T> attempt) {
+		if ( false == isEnabled() ) {
+			return attempt.get();
+		}
+		budget.deposit();
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicInteger outstanding = new AtomicInteger(1);
+		hedgeExecutor.execute(() -> run(attempt, result, outstanding, false));
+		try {
+			try {
+				return result.get(hedgeDelay(), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException ex) {
+				hedge(attempt, result, outstanding);
+			}
+			return result.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new TransientDataAccessResourceException("Interrupted waiting for commit service.", ex);
+		} catch (ExecutionException ex) {
+			if ( ex.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new NonTransientDataAccessResourceException(ex.getCause().getLocalizedMessage(), ex.getCause());
+		}
+	}
+
+	private <T> void hedge(Supplier<T> attempt, CompletableFuture<T> result, AtomicInteger outstanding) {
+		if ( result.isDone() ) {
+			return;
+		}
+		if ( budget.tryWithdraw() ) {
+			outstanding.incrementAndGet();
+			hedgeExecutor.execute(() -> run(attempt, result, outstanding, true));
+			hedgeCounter("sent").increment();
+		} else {
+			hedgeCounter("denied").increment();
+		}
+	}
+
+	private <T> void run(Supplier<T> attempt, CompletableFuture<T> result, AtomicInteger outstanding, boolean hedge) {
+		long start = System.nanoTime();
+		try {
+			T value = attempt.get();
+			attemptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			if ( result.complete(value) && hedge ) {
+				hedgeCounter("won").increment();
+			}
+		} catch (Throwable ex) {
+			attemptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			if ( outstanding.decrementAndGet() == 0 ) {
+				result.completeExceptionally(ex);
+			}
+		}
+	}
+
+	long hedgeDelay() {
+		long now = System.currentTimeMillis();
+		if ( now - delayRefreshed >= DELAY_REFRESH ) {
+			delayRefreshed = now;
+			long delay = config.getRestHedgeDelayMin();
+			for (ValueAtPercentile percentile : attemptTimer.takeSnapshot().percentileValues()) {
+				delay = Math.max(delay, (long) percentile.value(TimeUnit.MILLISECONDS));
+			}
+			hedgeDelay = delay;
+		}
+		return hedgeDelay;
+	}
+
+	private Counter hedgeCounter(String outcome) {
+		return Counter.builder("qslv.rest.hedges")
+				.description("Hedged commit service attempts")
+				.tag("outcome", outcome)
+				.register(registry);
+	}
+}
@@ -1,23 +1,134 @@
 package qslv.transaction.fulfillment;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.retry.backoff.ExponentialBackOffPolicy;
-import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.SlidingWindowType;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class RestConfig {
 	@Autowired
 	private ConfigProperties config;
+	@Autowired
+	private RetryBudget retryBudget;
 	
+	// All listener threads post to the same commitReservationUrl host, so the per-route limit is the effective pool size.
+	@Bean
+	public PoolingHttpClientConnectionManager restConnectionManager() {
+		PoolingHttpClientConnectionManager connectionManager = 
+				new PoolingHttpClientConnectionManager(config.getRestPoolTimeToLive(), TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(config.getRestPoolMaxTotal());
+		connectionManager.setDefaultMaxPerRoute(config.getRestPoolMaxPerRoute());
+		connectionManager.setValidateAfterInactivity(config.getRestPoolValidateAfterInactivity());
+		return connectionManager;
+	}
+
+	@Bean
+	public CloseableHttpClient restHttpClient() {
+		return HttpClients.custom()
+				.setConnectionManager(restConnectionManager())
+				.setKeepAliveStrategy(keepAliveStrategy())
+				.evictExpiredConnections()
+				.evictIdleConnections(config.getRestPoolIdleTimeout(), TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	// Honor the server's Keep-Alive timeout header, otherwise keep connections for the configured default.
+	private ConnectionKeepAliveStrategy keepAliveStrategy() {
+		return (response, context) -> {
+			long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return keepAlive > 0 ? keepAlive : config.getRestKeepAlive();
+		};
+	}
+
+	@Bean
+	public MeterBinder restConnectionPoolMetrics() {
+		PoolingHttpClientConnectionManager connectionManager = restConnectionManager();
+		return registry -> {
+			Gauge.builder("qslv.rest.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+				.description("Connections in use").register(registry);
+			Gauge.builder("qslv.rest.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable())
+				.description("Idle connections ready for reuse").register(registry);
+			Gauge.builder("qslv.rest.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+				.description("Requests waiting for a connection").register(registry);
+			Gauge.builder("qslv.rest.pool.max", connectionManager, cm -> cm.getTotalStats().getMax())
+				.description("Maximum connections").register(registry);
+		};
+	}
+
+	/*
+	 * Failure and slow call rates are measured over a rolling restBreakerWindow seconds. Only connection
+	 * failures and 5xx responses count as failures; a call refused by the concurrency limit is not counted.
+	 * The breaker moves itself to half-open after restBreakerOpenWait ms, since paused listeners would
+	 * otherwise never send the probe calls.
+	 */
+	@Bean
+	public CircuitBreakerRegistry circuitBreakerRegistry() {
+		CircuitBreakerConfig breakerConfig = CircuitBreakerConfig.custom()
+				.slidingWindowType(SlidingWindowType.TIME_BASED)
+				.slidingWindowSize(config.getRestBreakerWindow())
+				.minimumNumberOfCalls(config.getRestBreakerMinimumCalls())
+				.failureRateThreshold(config.getRestBreakerFailureRate())
+				.slowCallRateThreshold(config.getRestBreakerSlowCallRate())
+				.slowCallDurationThreshold(Duration.ofMillis(config.getRestBreakerSlowCall()))
+				.waitDurationInOpenState(Duration.ofMillis(config.getRestBreakerOpenWait()))
+				.permittedNumberOfCallsInHalfOpenState(config.getRestBreakerHalfOpenCalls())
+				.automaticTransitionFromOpenToHalfOpenEnabled(true)
+				.recordExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+				.ignoreExceptions(TransientDataAccessResourceException.class)
+				.build();
+		return CircuitBreakerRegistry.of(breakerConfig);
+	}
+
+	@Bean
+	public CircuitBreaker commitServiceBreaker() {
+		return circuitBreakerRegistry().circuitBreaker("commitReservation");
+	}
+
+	@Bean
+	public MeterBinder commitServiceBreakerMetrics() {
+		CircuitBreaker breaker = commitServiceBreaker();
+		return registry -> {
+			TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry()).bindTo(registry);
+			breaker.getEventPublisher().onStateTransition(event -> registry.counter("qslv.rest.breaker.transitions", 
+					"name", event.getCircuitBreakerName(),
+					"from", event.getStateTransition().getFromState().name(),
+					"to", event.getStateTransition().getToState().name()).increment());
+		};
+	}
+
 	@Bean
 	public RestTemplate restTemplate() {
-        HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory(HttpClients.createDefault());
+        HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory(restHttpClient());
         httpRequestFactory.setConnectionRequestTimeout(config.getRestConnectionRequestTimeout());;
         httpRequestFactory.setConnectTimeout(config.getRestConnectTimeout());
         httpRequestFactory.setReadTimeout(config.getRestTimeout());
@@ -25,20 +136,44 @@ public class RestConfig {
         return new RestTemplate(httpRequestFactory);
 	}
 	
+	/*
+	 * Non-blocking client for the reactive commit path. Reactor Netty pools per remote address, so
+	 * restPoolMaxPerRoute caps connections as it does for the RestTemplate. Waiters are not capped
+	 * here because the batch size, or the concurrency limit, bounds them.
+	 */
+	@Bean
+	public WebClient commitServiceWebClient(WebClient.Builder builder) {
+		ConnectionProvider connectionProvider = ConnectionProvider.builder("commitReservation")
+				.maxConnections(config.getRestPoolMaxPerRoute())
+				.pendingAcquireMaxCount(-1)
+				.pendingAcquireTimeout(Duration.ofMillis(config.getRestConnectionRequestTimeout()))
+				.maxIdleTime(Duration.ofMillis(config.getRestPoolIdleTimeout()))
+				.maxLifeTime(Duration.ofMillis(config.getRestPoolTimeToLive()))
+				.build();
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				.tcpConfiguration(tcp -> tcp.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getRestConnectTimeout()));
+		return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+	}
+
+	/*
+	 * Up to restAttempts attempts, waiting restBackoffDelay to restBackoffDelayMax ms with decorrelated jitter
+	 * between them. Retries are classified and budgeted by CommitRetryPolicy; every successful call adds to
+	 * the budget.
+	 */
 	@Bean 
 	RetryTemplate retryTemplate() {
-		ExponentialBackOffPolicy bop = new ExponentialBackOffPolicy();
-		bop.setMaxInterval(config.getRestBackoffDelay());
-		bop.setMaxInterval(config.getRestBackoffDelayMax());
-		
-		SimpleRetryPolicy srp = new SimpleRetryPolicy();
-		srp.setMaxAttempts(config.getRestAttempts());
-		
 		RetryTemplate retryTemplate = new RetryTemplate();
 		retryTemplate.setThrowLastExceptionOnExhausted(true);
-		retryTemplate.setRetryPolicy(srp);
-		retryTemplate.setBackOffPolicy(bop);
-		
+		retryTemplate.setRetryPolicy(new CommitRetryPolicy(config.getRestAttempts(), retryBudget));
+		retryTemplate.setBackOffPolicy(new DecorrelatedJitterBackOffPolicy(config.getRestBackoffDelay(), config.getRestBackoffDelayMax()));
+		retryTemplate.registerListener(new RetryListenerSupport() {
+			@Override
+			public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+				if ( throwable == null ) {
+					retryBudget.deposit();
+				}
+			}
+		});
 		return retryTemplate;
 	}
 }
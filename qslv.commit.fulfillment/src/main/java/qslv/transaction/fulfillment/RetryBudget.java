@@ -0,0 +1,60 @@
+package qslv.transaction.fulfillment;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Commit service retries shared by every listener thread, held to restRetryBudget percent of the successful
+ * calls. In an outage nothing succeeds, so once the saved retries are spent each call gets its one attempt
+ * and the service sees the normal load rather than restAttempts times it.
+ */
+@Component
+public class RetryBudget implements MeterBinder {
+	private static final double MAX_SAVED_RETRIES = 10.0;
+
+	@Autowired
+	private ConfigProperties config;
+
+	private CallBudget budget;
+	private Counter denied;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+
+	@PostConstruct
+	public void init() {
+		budget = new CallBudget(config.getRestRetryBudget() / 100.0, MAX_SAVED_RETRIES);
+	}
+
+	public void deposit() {
+		budget.deposit();
+	}
+
+	public boolean tryWithdraw() {
+		if ( budget.tryWithdraw() ) {
+			return true;
+		}
+		if ( denied != null ) {
+			denied.increment();
+		}
+		return false;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("qslv.rest.retry.budget", budget, CallBudget::getTokens)
+			.description("Commit service retries available")
+			.register(registry);
+		denied = Counter.builder("qslv.rest.retries.denied")
+			.description("Commit service retries refused by the retry budget")
+			.register(registry);
+	}
+}
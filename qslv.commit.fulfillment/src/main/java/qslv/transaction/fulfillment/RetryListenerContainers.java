@@ -0,0 +1,97 @@
+package qslv.transaction.fulfillment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+/*
+ * One listener container per retry delay tier. Waiting for a record to come due sleeps the consumer,
+ * so each tier gets its own consumer and a long tier never delays a short one. The tiers join the request
+ * listener's consumer group, so ScalingMetrics reads the lag of every topic from one group and the offsets
+ * stay with the group under exactly-once. A rebalance of the group waits for a sleeping tier consumer,
+ * which is why each sleep is capped at KafkaCommitListener.MAX_NACK_SLEEP ms.
+ */
+@Component
+public class RetryListenerContainers implements SmartLifecycle {
+	private static final Logger log = LoggerFactory.getLogger(RetryListenerContainers.class);
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private KafkaProducerDao kafkaDao;
+	@Autowired
+	private KafkaCommitListener kafkaCommitListener;
+	@Autowired
+	@Qualifier("kafkaListenerContainerFactory")
+	private ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> containerFactory;
+
+	private final List<ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>>> containers = new ArrayList<>();
+	private volatile boolean running = false;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setKafkaDao(KafkaProducerDao kafkaDao) {
+		this.kafkaDao = kafkaDao;
+	}
+	public void setKafkaCommitListener(KafkaCommitListener kafkaCommitListener) {
+		this.kafkaCommitListener = kafkaCommitListener;
+	}
+	public void setContainerFactory(ConcurrentKafkaListenerContainerFactory<String, TraceableMessage<CommitReservationRequest>> containerFactory) {
+		this.containerFactory = containerFactory;
+	}
+
+	@Override
+	public synchronized void start() {
+		if ( config.isKafkaRetryEnabled() && containers.isEmpty() ) {
+			for (String topic : kafkaDao.retryQueues()) {
+				ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> container = containerFactory.createContainer(topic);
+				container.setBeanName("retry-" + topic);
+				container.getContainerProperties().setMessageListener(
+						(AcknowledgingMessageListener<String, TraceableMessage<CommitReservationRequest>>) kafkaCommitListener::onRetryMessage);
+				containers.add(container);
+			}
+		}
+		for (ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> container : containers) {
+			log.info("Starting retry listener {}", container.getContainerProperties().getTopics()[0]);
+			container.start();
+		}
+		running = true;
+	}
+
+	@Override
+	public synchronized void stop() {
+		for (ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> container : containers) {
+			container.stop();
+		}
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	// Start and stop alongside the @KafkaListener containers.
+	@Override
+	public int getPhase() {
+		return AbstractMessageListenerContainer.DEFAULT_PHASE;
+	}
+
+	public List<ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>>> getContainers() {
+		return containers;
+	}
+}
@@ -0,0 +1,241 @@
+package qslv.transaction.fulfillment;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+/*
+ * Backlog and throughput for autoscaling, published as gauges and on the actuator "scaling" endpoint. Lag is
+ * read for the whole consumer group from the broker every kafkaLagInterval ms, so it covers partitions held
+ * by other replicas and stays current while the listeners are paused. Every replica reports the same group
+ * lag: aggregate with max, not sum. Lane and retry topics are read by the same group and count towards the
+ * backlog; retry records not yet due are included, the topic tag tells them apart.
+ */
+@Component
+@Endpoint(id = "scaling")
+public class ScalingMetrics implements MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(ScalingMetrics.class);
+	// Rate is smoothed over about a minute, processing time over about the last ten listener calls.
+	private static final double RATE_WINDOW = 60000.0;
+	private static final double PROCESSING_WEIGHT = 0.1;
+
+	@Autowired
+	private ConfigProperties config;
+	@Autowired
+	private ConsumerFactory<String, TraceableMessage<CommitReservationRequest>> consumerFactory;
+	@Autowired
+	private ListenerDrain listenerDrain;
+	@Autowired
+	private KafkaProducerDao kafkaDao;
+
+	private Admin admin;
+	private ScheduledExecutorService lagScheduler;
+	private MultiGauge lagGauge;
+	private volatile Map<TopicPartition, Long> lag = new HashMap<>();
+
+	private final LongAdder processed = new LongAdder();
+	private long lastProcessed = 0L;
+	private long lastTick = System.nanoTime();
+	private volatile double recordsPerSecond = 0.0;
+	private double processingTime = Double.NaN;
+
+	public void setConfig(ConfigProperties config) {
+		this.config = config;
+	}
+	public void setConsumerFactory(ConsumerFactory<String, TraceableMessage<CommitReservationRequest>> consumerFactory) {
+		this.consumerFactory = consumerFactory;
+	}
+	public void setListenerDrain(ListenerDrain listenerDrain) {
+		this.listenerDrain = listenerDrain;
+	}
+	public void setKafkaDao(KafkaProducerDao kafkaDao) {
+		this.kafkaDao = kafkaDao;
+	}
+	public void setAdmin(Admin admin) {
+		this.admin = admin;
+	}
+
+	@PostConstruct
+	public void init() {
+		Map<String, Object> adminConfig = consumerFactory.getConfigurationProperties().entrySet().stream()
+				.filter(entry -> AdminClientConfig.configNames().contains(entry.getKey()))
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		admin = Admin.create(adminConfig);
+		lagScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "scaling-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		lagScheduler.scheduleWithFixedDelay(this::refresh, config.getKafkaLagInterval(),
+				config.getKafkaLagInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (lagScheduler != null) {
+			lagScheduler.shutdownNow();
+		}
+		if (admin != null) {
+			admin.close(Duration.ofMillis(config.getKafkaTimeout()));
+		}
+	}
+
+	// Called by the listeners after every invocation.
+	public void recordProcessed(int records, long elapsedNanos) {
+		if ( records <= 0 ) {
+			return;
+		}
+		processed.add(records);
+		double perRecord = elapsedNanos / 1_000_000.0 / records;
+		synchronized (this) {
+			processingTime = Double.isNaN(processingTime) ? perRecord
+					: processingTime + PROCESSING_WEIGHT * (perRecord - processingTime);
+		}
+	}
+
+	public void refresh() {
+		updateRate();
+		try {
+			lag = readLag();
+			if ( lagGauge != null ) {
+				lagGauge.register(lag.entrySet().stream()
+						.map(entry -> MultiGauge.Row.of(Tags.of("topic", entry.getKey().topic(),
+								"partition", String.valueOf(entry.getKey().partition())), entry.getValue()))
+						.collect(Collectors.toList()), true);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (Exception ex) {
+			log.warn("Consumer lag not read. {}", ex.toString());
+		}
+	}
+
+	/*
+	 * End offset less committed offset for each partition of the request, lane and retry topics the group has
+	 * committed on.
+	 */
+	private Map<TopicPartition, Long> readLag() throws Exception {
+		Set<String> topics = new HashSet<>(kafkaDao.retryQueues());
+		topics.add(config.getKafkaCommitRequestQueue());
+		config.getKafkaLanes().keySet().forEach(lane -> topics.add(kafkaDao.laneQueue(lane)));
+		String groupId = String.valueOf(consumerFactory.getConfigurationProperties().get(ConsumerConfig.GROUP_ID_CONFIG));
+		Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(groupId)
+				.partitionsToOffsetAndMetadata().get(config.getKafkaTimeout(), TimeUnit.MILLISECONDS)
+				.entrySet().stream()
+				.filter(entry -> topics.contains(entry.getKey().topic()) && entry.getValue() != null)
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		if ( committed.isEmpty() ) {
+			return new HashMap<>();
+		}
+
+		Map<TopicPartition, OffsetSpec> latest = committed.keySet().stream()
+				.collect(Collectors.toMap(partition -> partition, partition -> OffsetSpec.latest()));
+		Map<TopicPartition, ListOffsetsResultInfo> ends = admin.listOffsets(latest)
+				.all().get(config.getKafkaTimeout(), TimeUnit.MILLISECONDS);
+
+		Map<TopicPartition, Long> current = new HashMap<>();
+		committed.forEach((partition, offset) -> {
+			ListOffsetsResultInfo end = ends.get(partition);
+			if ( end != null ) {
+				current.put(partition, Math.max(0L, end.offset() - offset.offset()));
+			}
+		});
+		return current;
+	}
+
+	private synchronized void updateRate() {
+		long now = System.nanoTime();
+		long count = processed.sum();
+		double elapsed = (now - lastTick) / 1_000_000.0;
+		if ( elapsed <= 0.0 ) {
+			return;
+		}
+		double instant = (count - lastProcessed) * 1000.0 / elapsed;
+		recordsPerSecond += (1.0 - Math.exp(-elapsed / RATE_WINDOW)) * (instant - recordsPerSecond);
+		lastProcessed = count;
+		lastTick = now;
+	}
+
+	public long getTotalLag() {
+		return lag.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	public Map<TopicPartition, Long> getLag() {
+		return lag;
+	}
+
+	public double getRecordsPerSecond() {
+		return recordsPerSecond;
+	}
+
+	public synchronized double getProcessingTime() {
+		return Double.isNaN(processingTime) ? 0.0 : processingTime;
+	}
+
+	@ReadOperation
+	public Map<String, Object> scaling() {
+		Map<String, Object> partitions = new TreeMap<>();
+		lag.forEach((partition, value) -> partitions.put(partition.toString(), value));
+
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("totalLag", getTotalLag());
+		body.put("lag", partitions);
+		body.put("recordsPerSecond", getRecordsPerSecond());
+		body.put("inFlight", listenerDrain.getInFlight());
+		body.put("processingTimeMs", getProcessingTime());
+		return body;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		lagGauge = MultiGauge.builder("qslv.fulfillment.lag")
+			.description("Request, lane and retry topic records not yet committed by the consumer group")
+			.register(registry);
+		Gauge.builder("qslv.fulfillment.lag.total", this, ScalingMetrics::getTotalLag)
+			.description("Request, lane and retry topic records not yet committed by the consumer group")
+			.register(registry);
+		Gauge.builder("qslv.fulfillment.throughput", this, ScalingMetrics::getRecordsPerSecond)
+			.description("Records processed per second, one minute moving average")
+			.baseUnit("records")
+			.register(registry);
+		Gauge.builder("qslv.fulfillment.processing.time", this, ScalingMetrics::getProcessingTime)
+			.description("Listener time per record, moving average")
+			.baseUnit("milliseconds")
+			.register(registry);
+	}
+}
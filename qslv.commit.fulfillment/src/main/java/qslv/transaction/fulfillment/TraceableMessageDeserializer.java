@@ -0,0 +1,31 @@
+package qslv.transaction.fulfillment;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/*
+ * Reads what JacksonAvroSerializer writes, through an ObjectReader for the expected message type built once.
+ * JacksonAvroDeserializer reads as Object and resolves the type from the type ids in each message.
+ */
+public class TraceableMessageDeserializer<T> implements Deserializer<T> {
+	private final ObjectReader reader;
+
+	public TraceableMessageDeserializer(JavaType type) {
+		reader = MessageTypes.mapper().readerFor(type);
+	}
+
+	@Override
+	public T deserialize(String topic, byte[] data) {
+		if ( data == null ) {
+			return null;
+		}
+		try {
+			return reader.readValue(data);
+		} catch (Exception ex) {
+			throw new SerializationException("Can not deserialize message from " + topic, ex);
+		}
+	}
+}
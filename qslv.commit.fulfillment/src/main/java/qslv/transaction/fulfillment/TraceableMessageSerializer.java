@@ -0,0 +1,39 @@
+package qslv.transaction.fulfillment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import qslv.common.kafka.TraceableMessage;
+
+/*
+ * Writes the same bytes as JacksonAvroSerializer, through an ObjectWriter per message type built once, so the
+ * serializer for the type is not looked up again for every message. The writer is picked by payload class; a
+ * transactional producer carries both replies and forwarded requests. Any other value goes through the mapper.
+ */
+public class TraceableMessageSerializer<T extends TraceableMessage<?>> implements Serializer<T> {
+	private final ObjectMapper mapper = MessageTypes.mapper();
+	private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+	public TraceableMessageSerializer(JavaType... types) {
+		for (JavaType type : types) {
+			writers.put(type.containedType(0).getRawClass(), mapper.writerFor(type));
+		}
+	}
+
+	@Override
+	public byte[] serialize(String topic, T data) {
+		try {
+			ObjectWriter writer = (data == null || data.getPayload() == null) ? null : writers.get(data.getPayload().getClass());
+			return writer == null ? mapper.writeValueAsBytes(data) : writer.writeValueAsBytes(data);
+		} catch (Exception ex) {
+			throw new SerializationException("Can not serialize message for " + topic, ex);
+		}
+	}
+}
@@ -1,6 +1,10 @@
 package qslv.transaction.fulfillment;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +21,13 @@ import org.springframework.retry.RetryCallback;
 import org.springframework.retry.RetryContext;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Timer;
+
 import qslv.common.TimedResponse;
 import qslv.common.TraceableRequest;
 import qslv.common.kafka.TraceableMessage;
@@ -29,6 +39,8 @@ public class TransactionDao {
 	private static final Logger log = LoggerFactory.getLogger(TransactionDao.class);
 	private static ParameterizedTypeReference<TimedResponse<CommitReservationResponse>> commitResponseType =
 			new ParameterizedTypeReference<TimedResponse<CommitReservationResponse>>() {};
+	private static ParameterizedTypeReference<TimedResponse<List<CommitReservationResponse>>> commitBulkResponseType =
+			new ParameterizedTypeReference<TimedResponse<List<CommitReservationResponse>>>() {};
 
 	@Autowired
 	private ConfigProperties config;
@@ -37,6 +49,14 @@ public class TransactionDao {
 	private RestTemplateProxy restTemplateProxy;
 	@Autowired
 	private RetryTemplate retryTemplate;
+	@Autowired
+	private CircuitBreaker commitServiceBreaker;
+	@Autowired
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+	@Autowired
+	private FulfillmentMetrics metrics;
+	@Autowired
+	private RequestHedger requestHedger;
 
 	public void setConfig(ConfigProperties config) {
 		this.config = config;
@@ -47,6 +67,18 @@ public class TransactionDao {
 	public void setRetryTemplate(RetryTemplate retryTemplate) {
 		this.retryTemplate = retryTemplate;
 	}
+	public void setCommitServiceBreaker(CircuitBreaker commitServiceBreaker) {
+		this.commitServiceBreaker = commitServiceBreaker;
+	}
+	public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+	public void setMetrics(FulfillmentMetrics metrics) {
+		this.metrics = metrics;
+	}
+	public void setRequestHedger(RequestHedger requestHedger) {
+		this.requestHedger = requestHedger;
+	}
 	
 	public CommitReservationResponse commitReservation(final TraceableMessage<?> message, final CommitReservationRequest request) {
 		log.trace("commitReservation ENTRY");
@@ -55,15 +87,60 @@ public class TransactionDao {
 		headers.add(TraceableRequest.ACCEPT_VERSION, CommitReservationRequest.VERSION_1_0);
 
 		CommitReservationResponse response = callService(message, headers, config.getCommitReservationUrl(), request, commitResponseType);
+		verifyCommitted(config.getCommitReservationUrl(), response);
+
+		log.trace("commitReservation EXIT");
+		return response;
+	}
+
+	/*
+	 * Commit several reservations with one POST to the bulk endpoint. The bulk contract carries one set of trace
+	 * headers per call, taken from the first message; the correlation IDs of the other items are logged against
+	 * it at debug level, and each item's reply on Kafka keeps its own. Responses come back in request order and
+	 * are not status checked here, so one failed item does not fail the rest; callers check each with
+	 * verifyCommitted.
+	 */
+	public List<CommitReservationResponse> commitReservations(final List<TraceableMessage<CommitReservationRequest>> messages) {
+		log.trace("commitReservations ENTRY");
+
+		HttpHeaders headers = buildHeaders(messages.get(0));
+		headers.add(TraceableRequest.ACCEPT_VERSION, CommitReservationRequest.VERSION_1_0);
+
+		List<CommitReservationRequest> requests = new ArrayList<>(messages.size());
+		List<String> correlationIds = new ArrayList<>(messages.size());
+		for (TraceableMessage<CommitReservationRequest> message : messages) {
+			requests.add(message.getPayload());
+			correlationIds.add(message.getCorrelationId());
+		}
+		log.debug("Bulk commit {} carries correlation IDs {}", messages.get(0).getCorrelationId(), correlationIds);
+
+		List<CommitReservationResponse> responses = callService(messages.get(0), headers, config.getCommitReservationBulkUrl(), 
+				requests, commitBulkResponseType);
+		if (responses == null || responses.size() != requests.size()) {
+			String msg = String.format("Unexpected return from %s Service. Expected %d responses, received %s.", 
+					config.getCommitReservationBulkUrl(), requests.size(), responses == null ? "none" : responses.size());
+			log.error(msg);
+			throw new NonTransientDataAccessResourceException(msg);
+		}
+		int missing = responses.indexOf(null);
+		if (missing >= 0) {
+			String msg = String.format("Unexpected return from %s Service. No response at index %d.", 
+					config.getCommitReservationBulkUrl(), missing);
+			log.error(msg);
+			throw new NonTransientDataAccessResourceException(msg);
+		}
+
+		log.trace("commitReservations EXIT");
+		return responses;
+	}
+
+	public void verifyCommitted(String url, CommitReservationResponse response) {
 		int status = response.getStatus();
 		if (status != CommitReservationResponse.SUCCESS ) {
-			String msg = String.format("Unexpected return from %s Service. %s", config.getCommitReservationUrl(), response.toString());
+			String msg = String.format("Unexpected return from %s Service. %s", url, response.toString());
 			log.error(msg);
 			throw new NonTransientDataAccessResourceException(msg);
 		}
-
-		log.trace("commitReservation EXIT");
-		return response;
 	}
 
 	private <M,R> R callService(final TraceableMessage<?> message, HttpHeaders headers,
@@ -71,17 +148,33 @@ public class TransactionDao {
 		log.trace("callService ENTRY");
 
 		ResponseEntity<TimedResponse<R>> response = null;
-		try {
-			response = retryTemplate.execute(new RetryCallback<ResponseEntity<TimedResponse<R>>, ResourceAccessException>() {
+		Supplier<ResponseEntity<TimedResponse<R>>> call = () -> 
+			retryTemplate.execute(new RetryCallback<ResponseEntity<TimedResponse<R>>, ResourceAccessException>() {
 				public ResponseEntity<TimedResponse<R>> doWithRetry( RetryContext context) throws ResourceAccessException {
-					return restTemplateProxy.exchange(url, HttpMethod.POST,
-							new HttpEntity<M>(request, headers), typereference);
+					if ( context.getRetryCount() > 0 ) {
+						metrics.incrementRestRetries();
+					}
+					return requestHedger.execute(() -> exchange(url, new HttpEntity<M>(request, headers), typereference));
 			}});
-		} catch (ResourceAccessException ex) {
-			String msg = String.format("Exhausted %d retries for POST %s.", config.getRestAttempts(), url);
-			log.warn(msg);
+		Timer.Sample sample = metrics.start();
+		try {
+			response = config.isRestBreakerEnabled() ? commitServiceBreaker.executeSupplier(call) : call.get();
+			metrics.stopRest(sample, url, FulfillmentMetrics.SUCCESS);
+		} catch (CallNotPermittedException ex) {
+			metrics.stopRest(sample, url, FulfillmentMetrics.REJECTED);
+			String msg = String.format("Circuit breaker %s is %s. POST %s not attempted.", 
+					commitServiceBreaker.getName(), commitServiceBreaker.getState(), url);
+			log.debug(msg);
 			throw new TransientDataAccessResourceException(msg, ex);
 		} catch (Exception ex) {
+			metrics.stopRest(sample, url, FulfillmentMetrics.FAILURE);
+			// Out of attempts or retry budget on a failure that may yet clear, so the request is retried later.
+			if (CommitRetryPolicy.isRetryable(ex)) {
+				String msg = String.format("Exhausted %d retries for POST %s. %s", config.getRestAttempts(), url, 
+						ex.getLocalizedMessage());
+				log.warn(msg);
+				throw new TransientDataAccessResourceException(msg, ex);
+			}
 			log.error(ex.getLocalizedMessage());
 			throw (ex);
 		}
@@ -94,7 +187,29 @@ public class TransactionDao {
 		return response.getBody().getPayload();
 	}
 	
-	private HttpHeaders buildHeaders(final TraceableMessage<?> message) {
+	/*
+	 * One POST attempt. With the concurrency limit enabled the attempt waits for a slot, and its round trip
+	 * time, or failure, adjusts the limit.
+	 */
+	private <M,R> ResponseEntity<TimedResponse<R>> exchange(String url, HttpEntity<M> entity,
+			ParameterizedTypeReference<TimedResponse<R>> typereference) {
+		if ( false == concurrencyLimiter.isEnabled() ) {
+			return restTemplateProxy.exchange(url, HttpMethod.POST, entity, typereference);
+		}
+		concurrencyLimiter.acquire();
+		long start = System.currentTimeMillis();
+		boolean dropped = false;
+		try {
+			return restTemplateProxy.exchange(url, HttpMethod.POST, entity, typereference);
+		} catch (ResourceAccessException | HttpServerErrorException ex) {
+			dropped = true;
+			throw ex;
+		} finally {
+			concurrencyLimiter.release(System.currentTimeMillis() - start, dropped);
+		}
+	}
+
+	HttpHeaders buildHeaders(final TraceableMessage<?> message) {
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
 		headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON) );
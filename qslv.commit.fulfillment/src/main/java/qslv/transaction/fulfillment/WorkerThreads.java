@@ -0,0 +1,50 @@
+package qslv.transaction.fulfillment;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Thread factories for the worker pools. Virtual threads are created reflectively so the build keeps its Java 8
+ * target; on a JDK without them (before 21) workers fall back to daemon platform threads.
+ */
+public final class WorkerThreads {
+	private static final Logger log = LoggerFactory.getLogger(WorkerThreads.class);
+
+	private WorkerThreads() {
+	}
+
+	public static ThreadFactory factory(String prefix, boolean virtual) {
+		if ( virtual ) {
+			ThreadFactory factory = virtualFactory(prefix);
+			if ( factory != null ) {
+				return factory;
+			}
+			log.warn("Virtual threads need JDK 21 or later. {} workers run on platform threads.", prefix);
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	public static boolean isVirtualAvailable() {
+		return virtualFactory("probe-") != null;
+	}
+
+	// Thread.ofVirtual().name(prefix, 0).factory()
+	private static ThreadFactory virtualFactory(String prefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+}
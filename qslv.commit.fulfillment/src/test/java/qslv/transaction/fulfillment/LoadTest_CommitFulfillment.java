@@ -0,0 +1,262 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import qslv.common.kafka.JacksonAvroDeserializer;
+import qslv.common.kafka.JacksonAvroSerializer;
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * Offline load test of the full listener, REST and producer stack against an embedded broker and the stub
+ * transaction service. Not part of the unit suite, run it on its own and compare configurations with qslv.*
+ * system properties:
+ *   mvn test -Dtest=LoadTest_CommitFulfillment -Dload.messages=20000 -Dload.latency.mean=20 -Dqslv.kafka-batch-listener=true
+ * load.messages, load.rate (msgs/sec, 0 sends as fast as possible), load.accounts, load.latency.mean,
+ * load.latency.stddev (ms) and load.error.rate (fraction of 503s) shape the load. load.latency.slow.rate of
+ * calls take load.latency.slow ms instead, for a latency tail.
+ */
+@SpringBootTest(properties = { "logging.level.qslv=INFO", "logging.level.qslv.transaction.fulfillment.FulfillmentControllerService=ERROR" })
+@Import(value = { TestConfig.class })
+@DirtiesContext
+@EmbeddedKafka(partitions = 4, topics = { "commit.request.queue", "commit.reply.queue" },
+		brokerProperties = { "transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1" })
+@ActiveProfiles("test")
+public class LoadTest_CommitFulfillment {
+	private static final Logger log = LoggerFactory.getLogger(LoadTest_CommitFulfillment.class);
+	private static final String request_topic = "commit.request.queue";
+	private static final String reply_topic = "commit.reply.queue";
+	private static final long IDLE_TIMEOUT = 30000L;
+
+	private final int messages = Integer.getInteger("load.messages", 1000);
+	private final int rate = Integer.getInteger("load.rate", 0);
+	private final int accounts = Integer.getInteger("load.accounts", 1000);
+	private final long latencyMean = Long.getLong("load.latency.mean", 5L);
+	private final long latencyStddev = Long.getLong("load.latency.stddev", 2L);
+	private final double errorRate = Double.parseDouble(System.getProperty("load.error.rate", "0.0"));
+	private final double slowRate = Double.parseDouble(System.getProperty("load.latency.slow.rate", "0.0"));
+	private final long slowLatency = Long.getLong("load.latency.slow", 400L);
+
+	@Autowired EmbeddedKafkaBroker embeddedKafka;
+	@Autowired KafkaListenerEndpointRegistry registry;
+	@Autowired ConfigProperties configProperties;
+
+	StubTransactionServer server;
+	String groupId;
+
+	@BeforeEach
+	public void init() throws IOException {
+		server = new StubTransactionServer().start();
+		server.setLatency(latencyMean, latencyStddev);
+		if ( slowRate > 0.0 ) {
+			server.setLatency(() -> ThreadLocalRandom.current().nextDouble() < slowRate ? slowLatency
+					: Math.max(0L, Math.round(latencyMean + latencyStddev * ThreadLocalRandom.current().nextGaussian())));
+		}
+		server.setErrorRate(errorRate);
+		configProperties.setCommitReservationUrl(server.getCommitReservationUrl());
+		configProperties.setCommitReservationBulkUrl(server.getCommitReservationBulkUrl());
+
+		// Records produced before the listener owns its partitions would be skipped by auto.offset.reset=latest.
+		for (MessageListenerContainer container : registry.getListenerContainers()) {
+			if ( container.isRunning() ) {
+				groupId = container.getGroupId();
+				ContainerTestUtils.waitForAssignment(container, embeddedKafka.getPartitionsPerTopic());
+			}
+		}
+	}
+
+	@AfterEach
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	void test_sustainedLoad() throws Exception {
+		Producer<String, TraceableMessage<CommitReservationRequest>> producer = buildProducer();
+		Consumer<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> consumer = buildConsumer();
+		embeddedKafka.consumeFromAnEmbeddedTopic(consumer, reply_topic);
+
+		Histogram latency = new Histogram(TimeUnit.MINUTES.toMicros(5), 3);
+		AtomicLong maxLag = new AtomicLong();
+		ScheduledExecutorService lagSampler = Executors.newSingleThreadScheduledExecutor();
+		AdminClient admin = AdminClient.create(embeddedConfig());
+		lagSampler.scheduleAtFixedRate(() -> maxLag.accumulateAndGet(consumerLag(admin), Math::max),
+				0L, 250L, TimeUnit.MILLISECONDS);
+
+		// -Execute----------------
+		long start = System.nanoTime();
+		for (int ii = 0; ii < messages; ii++) {
+			if ( rate > 0 ) {
+				long due = start + TimeUnit.SECONDS.toNanos(ii) / rate;
+				long wait = due - System.nanoTime();
+				if ( wait > 0 ) {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				}
+			}
+			TraceableMessage<CommitReservationRequest> message = setup_traceable(ii % accounts);
+			producer.send(new ProducerRecord<>(request_topic, message.getPayload().getAccountNumber(), message));
+		}
+		producer.flush();
+		long sent = System.nanoTime();
+
+		int received = 0;
+		int failed = 0;
+		// Keep waiting while replies are still arriving, give up once the service goes quiet.
+		long idleDeadline = System.currentTimeMillis() + IDLE_TIMEOUT;
+		while ( received < messages && System.currentTimeMillis() < idleDeadline ) {
+			ConsumerRecords<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> records
+				= consumer.poll(Duration.ofMillis(200L));
+			LocalDateTime now = LocalDateTime.now();
+			for (ConsumerRecord<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> record : records) {
+				received++;
+				if ( record.value().getPayload().getStatus() != ResponseMessage.SUCCESS ) {
+					failed++;
+				}
+				idleDeadline = System.currentTimeMillis() + IDLE_TIMEOUT;
+				latency.recordValue(Math.max(0L, Duration.between(record.value().getMessageCreationTime(), now).toNanos() / 1000L));
+			}
+		}
+		long finished = System.nanoTime();
+		lagSampler.shutdownNow();
+		long finalLag = consumerLag(admin);
+		admin.close();
+		producer.close();
+		consumer.close();
+
+		// -Report----------------
+		double elapsed = (finished - start) / 1e9;
+		ByteArrayOutputStream percentiles = new ByteArrayOutputStream();
+		latency.outputPercentileDistribution(new PrintStream(percentiles), 5, 1000.0);
+		log.info("Load test: {} sent in {} s, {} replies ({} not SUCCESS) in {} s, {} msgs/sec sustained. "
+				+ "Stub latency {}+-{} ms, error rate {}. Max consumer lag {}, final lag {}.",
+				messages, String.format("%.2f", (sent - start) / 1e9), received, failed, String.format("%.2f", elapsed),
+				String.format("%.0f", received / elapsed), latencyMean, latencyStddev, errorRate, maxLag.get(), finalLag);
+		log.info("End to end latency ms: p50 {} p90 {} p99 {} p99.9 {} max {}",
+				latency.getValueAtPercentile(50.0) / 1000.0, latency.getValueAtPercentile(90.0) / 1000.0,
+				latency.getValueAtPercentile(99.0) / 1000.0, latency.getValueAtPercentile(99.9) / 1000.0,
+				latency.getMaxValue() / 1000.0);
+		log.info("Latency distribution (ms)\n{}", percentiles.toString());
+
+		// -Verify----------------
+		assertEquals(messages, received);
+	}
+
+	// Records on the request topic not yet committed by the service's consumer group.
+	private long consumerLag(AdminClient admin) {
+		try {
+			Map<TopicPartition, OffsetAndMetadata> committed = admin
+					.listConsumerGroupOffsets(groupId)
+					.partitionsToOffsetAndMetadata().get();
+			Map<TopicPartition, OffsetSpec> latest = IntStream.range(0, embeddedKafka.getPartitionsPerTopic())
+					.mapToObj(partition -> new TopicPartition(request_topic, partition))
+					.collect(Collectors.toMap(partition -> partition, partition -> OffsetSpec.latest()));
+			Map<TopicPartition, ListOffsetsResultInfo> endOffsets = admin.listOffsets(latest).all().get();
+			long lag = 0L;
+			for (TopicPartition partition : latest.keySet()) {
+				OffsetAndMetadata offset = committed.get(partition);
+				lag += endOffsets.get(partition).offset() - (offset == null ? 0L : offset.offset());
+			}
+			return lag;
+		} catch (Exception ex) {
+			log.debug("Lag sample failed. {}", ex.toString());
+			return 0L;
+		}
+	}
+
+	//------------------------------------------------------
+	// Load producer and reply consumer
+	//------------------------------------------------------
+	private Map<String,Object> embeddedConfig() {
+		HashMap<String, Object> props = new HashMap<>();
+		props.put("bootstrap.servers", embeddedKafka.getBrokersAsString());
+		props.put("schema.registry.url", "http://localhost:8081");
+		return props;
+	}
+
+	private Producer<String, TraceableMessage<CommitReservationRequest>> buildProducer() {
+		Map<String, Object> configs = embeddedConfig();
+		configs.put("linger.ms", 5);
+
+		JacksonAvroSerializer<TraceableMessage<CommitReservationRequest>> jas = new JacksonAvroSerializer<>();
+		jas.configure(configs, false, MessageTypes.COMMIT_REQUEST);
+
+		return new DefaultKafkaProducerFactory<>(configs, new StringSerializer(), jas ).createProducer();
+	}
+
+	private Consumer<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> buildConsumer() {
+		Map<String, Object> configs = embeddedConfig();
+		configs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		configs.put("group.id", "load.test.reply");
+		// Only count replies whose transaction committed.
+		configs.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+		JacksonAvroDeserializer<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> jad = new JacksonAvroDeserializer<>();
+		jad.configure(configs);
+
+		return new DefaultKafkaConsumerFactory<>(configs, new StringDeserializer(), jad).createConsumer();
+	}
+
+	TraceableMessage<CommitReservationRequest> setup_traceable(int account) {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber(String.format("%012d", account));
+		message.getPayload().setRequestUuid(UUID.randomUUID());
+		message.getPayload().setReservationUuid(UUID.randomUUID());
+		message.getPayload().setTransactionMetaDataJson("{}");
+		message.setBusinessTaxonomyId("234234234234");
+		message.setCorrelationId(UUID.randomUUID().toString());
+		message.setMessageCreationTime(LocalDateTime.now());
+		message.setProducerAit("27834");
+		return message;
+	}
+}
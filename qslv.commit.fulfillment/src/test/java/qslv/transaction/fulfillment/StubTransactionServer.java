@@ -0,0 +1,155 @@
+package qslv.transaction.fulfillment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import qslv.common.TimedResponse;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.resource.TransactionResource;
+import qslv.transaction.response.CommitReservationResponse;
+
+/*
+ * In-process stand in for the CommitReservation service so DAO and end-to-end tests run offline.
+ *   POST /CommitReservation   body CommitReservationRequest        -> 201 TimedResponse<CommitReservationResponse>
+ *   POST /CommitReservations  body List<CommitReservationRequest>  -> 201 TimedResponse<List<CommitReservationResponse>>
+ * Bulk responses are returned in request order. Requests matching rejectWhen get a non SUCCESS status, and
+ * bulk requests matching omitWhen get a null in their place.
+ * Each call is delayed by latency ms, and errorRate of calls fail with a 503, for load testing.
+ */
+public class StubTransactionServer {
+	private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final AtomicInteger singleCalls = new AtomicInteger();
+	private final AtomicInteger bulkCalls = new AtomicInteger();
+	private final AtomicInteger largestBulk = new AtomicInteger();
+	private volatile Predicate<CommitReservationRequest> rejectWhen = request -> false;
+	private volatile Predicate<CommitReservationRequest> omitWhen = request -> false;
+	private volatile int failWithStatus = 0;
+	private volatile LongSupplier latency = () -> 0L;
+	private volatile double errorRate = 0.0;
+
+	public StubTransactionServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/CommitReservation", this::commitReservation);
+		server.createContext("/CommitReservations", this::commitReservations);
+		server.setExecutor(executor);
+	}
+
+	public StubTransactionServer start() {
+		server.start();
+		return this;
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public String getCommitReservationUrl() {
+		return "http://localhost:" + server.getAddress().getPort() + "/CommitReservation";
+	}
+
+	public String getCommitReservationBulkUrl() {
+		return "http://localhost:" + server.getAddress().getPort() + "/CommitReservations";
+	}
+
+	public int getSingleCalls() {
+		return singleCalls.get();
+	}
+
+	public int getBulkCalls() {
+		return bulkCalls.get();
+	}
+
+	// Most items carried by one bulk call.
+	public int getLargestBulk() {
+		return largestBulk.get();
+	}
+
+	public void setOmitWhen(Predicate<CommitReservationRequest> omitWhen) {
+		this.omitWhen = omitWhen;
+	}
+
+	public void setRejectWhen(Predicate<CommitReservationRequest> rejectWhen) {
+		this.rejectWhen = rejectWhen;
+	}
+
+	// Any HTTP status other than 0 fails every call with that status.
+	public void setFailWithStatus(int failWithStatus) {
+		this.failWithStatus = failWithStatus;
+	}
+
+	public void setLatency(LongSupplier latency) {
+		this.latency = latency;
+	}
+
+	// Normally distributed latency in ms, never negative.
+	public void setLatency(long mean, long stddev) {
+		this.latency = () -> Math.max(0L, Math.round(mean + stddev * ThreadLocalRandom.current().nextGaussian()));
+	}
+
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	private void commitReservation(HttpExchange exchange) throws IOException {
+		singleCalls.incrementAndGet();
+		CommitReservationRequest request = mapper.readValue(exchange.getRequestBody(), CommitReservationRequest.class);
+		respond(exchange, new TimedResponse<>(1L, commit(request)));
+	}
+
+	private void commitReservations(HttpExchange exchange) throws IOException {
+		bulkCalls.incrementAndGet();
+		List<CommitReservationRequest> requests = mapper.readValue(exchange.getRequestBody(), 
+				new TypeReference<List<CommitReservationRequest>>() {});
+		largestBulk.accumulateAndGet(requests.size(), Math::max);
+		List<CommitReservationResponse> responses = new ArrayList<>(requests.size());
+		for (CommitReservationRequest request : requests) {
+			responses.add(omitWhen.test(request) ? null : commit(request));
+		}
+		respond(exchange, new TimedResponse<>(1L, responses));
+	}
+
+	private CommitReservationResponse commit(CommitReservationRequest request) {
+		TransactionResource resource = new TransactionResource();
+		resource.setAccountNumber(request.getAccountNumber());
+		int status = rejectWhen.test(request) ? CommitReservationResponse.SUCCESS + 1 : CommitReservationResponse.SUCCESS;
+		return new CommitReservationResponse(status, resource);
+	}
+
+	private void respond(HttpExchange exchange, Object body) throws IOException {
+		long delay = latency.getAsLong();
+		if ( delay > 0 ) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		int status = failWithStatus == 0 ? 201 : failWithStatus;
+		if ( errorRate > 0.0 && ThreadLocalRandom.current().nextDouble() < errorRate ) {
+			status = 503;
+		}
+		byte[] bytes = mapper.writeValueAsBytes(body);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+}
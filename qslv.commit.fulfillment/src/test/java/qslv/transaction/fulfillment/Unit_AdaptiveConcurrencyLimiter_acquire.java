@@ -0,0 +1,121 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+class Unit_AdaptiveConcurrencyLimiter_acquire {
+	ConfigProperties config = new ConfigProperties();
+	AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+
+	@BeforeEach
+	public void setup() {
+		config.setRestLimitEnabled(true);
+		config.setRestLimitInitial(4);
+		config.setRestLimitMin(2);
+		config.setRestLimitMax(5);
+		config.setRestLimitLatency(100);
+		config.setRestLimitBackoff(50);
+		config.setRestConnectionRequestTimeout(20);
+		limiter.setConfig(config);
+		limiter.init();
+	}
+
+	@Test
+	void test_acquire_increaseOnFastCalls() {
+		//--Execute-----------------------
+		for (int ii = 0; ii < 20; ii++) {
+			limiter.acquire();
+			limiter.acquire();
+			limiter.acquire();
+			limiter.release(10L, false);
+			limiter.release(10L, false);
+			limiter.release(10L, false);
+		}
+
+		//--Verify------------------------
+		assertEquals(5, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void test_acquire_decreaseOnSlowOrDropped() {
+		//--Execute-----------------------
+		limiter.acquire();
+		limiter.release(500L, false);
+
+		//--Verify------------------------
+		assertEquals(2, limiter.getLimit());
+
+		//--Execute-----------------------
+		limiter.acquire();
+		limiter.release(10L, true);
+
+		//--Verify------------------------
+		assertEquals(2, limiter.getLimit());
+	}
+
+	@Test
+	void test_acquire_limitReached() {
+		//-- Setup ------------------
+		List<Boolean> saturation = new ArrayList<>();
+		limiter.onSaturation(saturation::add);
+
+		//--Execute-----------------------
+		for (int ii = 0; ii < 4; ii++) {
+			limiter.acquire();
+		}
+
+		//--Verify------------------------
+		assertThrows(TransientDataAccessResourceException.class, () -> limiter.acquire());
+		assertEquals(4, limiter.getInFlight());
+
+		//--Execute-----------------------
+		limiter.release(10L, false);
+
+		//--Verify------------------------
+		assertEquals(2, saturation.size());
+		assertTrue(saturation.get(0));
+		assertFalse(saturation.get(1));
+	}
+
+	@Test
+	void test_acquire_saturationHysteresis() {
+		//-- Setup ------------------
+		config.setRestLimitInitial(8);
+		config.setRestLimitMax(8);
+		config.setRestLimitResume(50);
+		limiter.init();
+		List<Boolean> saturation = new ArrayList<>();
+		limiter.onSaturation(saturation::add);
+		for (int ii = 0; ii < 8; ii++) {
+			limiter.acquire();
+		}
+
+		//--Execute-----------------------
+		// Calls completing and starting at the limit.
+		for (int ii = 0; ii < 10; ii++) {
+			limiter.release(10L, false);
+			limiter.acquire();
+		}
+		for (int ii = 0; ii < 3; ii++) {
+			limiter.release(10L, false);
+		}
+
+		//--Verify------------------------
+		assertEquals(1, saturation.size());
+		assertTrue(saturation.get(0));
+
+		//--Execute-----------------------
+		limiter.release(10L, false);
+
+		//--Verify------------------------
+		assertEquals(2, saturation.size());
+		assertFalse(saturation.get(1));
+	}
+}
@@ -0,0 +1,125 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class Unit_BackpressureController_sample {
+	BackpressureController controller = new BackpressureController();
+	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	@Mock
+	KafkaProducerDao kafkaDao;
+	List<Boolean> changes = new ArrayList<>();
+
+	@BeforeEach
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		config.setBackpressureMinCalls(10);
+		config.setBackpressureResumeSamples(2);
+		controller.setConfig(config);
+		controller.setRegistry(meterRegistry);
+		controller.setKafkaDao(kafkaDao);
+		controller.bindTo(meterRegistry);
+		controller.onPressure(changes::add);
+		doReturn(0.0).when(kafkaDao).bufferUsage();
+	}
+
+	@Test
+	void test_sample_errorRate() {
+		//--Prepare--------------
+		calls(FulfillmentMetrics.SUCCESS, 10, 50L);
+		calls(FulfillmentMetrics.FAILURE, 10, 50L);
+
+		//--Execute--------------
+		controller.sample();
+
+		//--Verify--------------
+		assertTrue(controller.isPressure());
+		assertEquals(1.0, meterRegistry.get("qslv.fulfillment.backpressure").gauge().value());
+
+		//--Execute--------------
+		// Paused, so too few calls to judge the service. The buffer alone decides after two quiet samples.
+		controller.sample();
+		assertTrue(controller.isPressure());
+		controller.sample();
+
+		//--Verify--------------
+		assertFalse(controller.isPressure());
+		assertEquals(2, changes.size());
+		assertTrue(changes.get(0));
+		assertFalse(changes.get(1));
+	}
+
+	@Test
+	void test_sample_hysteresis() {
+		//--Prepare--------------
+		config.setBackpressureLatencyPause(1000);
+		config.setBackpressureLatencyResume(200);
+		calls(FulfillmentMetrics.SUCCESS, 20, 1500L);
+		controller.sample();
+		assertTrue(controller.isPressure());
+
+		//--Execute--------------
+		// Under the pause threshold but over the resume threshold keeps the pressure on.
+		for (int i = 0; i < 3; i++) {
+			calls(FulfillmentMetrics.SUCCESS, 20, 500L);
+			controller.sample();
+		}
+
+		//--Verify--------------
+		assertTrue(controller.isPressure());
+
+		//--Execute--------------
+		for (int i = 0; i < 2; i++) {
+			calls(FulfillmentMetrics.SUCCESS, 20, 100L);
+			controller.sample();
+		}
+
+		//--Verify--------------
+		assertFalse(controller.isPressure());
+		assertEquals(2, changes.size());
+	}
+
+	@Test
+	void test_sample_producerBuffer() {
+		//--Prepare--------------
+		calls(FulfillmentMetrics.SUCCESS, 20, 50L);
+		// The concurrency limiter refusing calls is not a downstream failure.
+		calls(FulfillmentMetrics.REJECTED, 50, 0L);
+		doReturn(95.0).doReturn(70.0).doReturn(70.0).doReturn(10.0).doReturn(10.0).when(kafkaDao).bufferUsage();
+
+		//--Execute--------------
+		controller.sample();
+		assertTrue(controller.isPressure());
+		controller.sample();
+		controller.sample();
+		assertTrue(controller.isPressure());
+		controller.sample();
+		controller.sample();
+
+		//--Verify--------------
+		assertFalse(controller.isPressure());
+		verify(kafkaDao, times(5)).bufferUsage();
+	}
+
+	private void calls(String outcome, int count, long millis) {
+		Timer timer = Timer.builder("qslv.fulfillment.rest")
+				.tags("uri", "http://localhost/CommitReservation", "outcome", outcome)
+				.register(meterRegistry);
+		for (int i = 0; i < count; i++) {
+			timer.record(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+class Unit_CommitReservationBatcher_commitReservation {
+	StubTransactionServer server;
+	ConfigProperties config = new ConfigProperties();
+	TransactionDao transactionDao = new TransactionDao();
+	CommitReservationBatcher batcher = new CommitReservationBatcher();
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new StubTransactionServer().start();
+
+		config.setAitid("723842");
+		config.setCommitReservationUrl(server.getCommitReservationUrl());
+		config.setCommitReservationBulkUrl(server.getCommitReservationBulkUrl());
+		config.setRestBulkSize(4);
+		config.setRestBulkWindow(50);
+
+		RetryTemplate retryTemplate = new RetryTemplate();
+		SimpleRetryPolicy srp = new SimpleRetryPolicy();
+		srp.setMaxAttempts(1);
+		retryTemplate.setRetryPolicy(srp);
+		RestTemplateProxy restTemplateProxy = new RestTemplateProxy();
+		restTemplateProxy.setRestTemplate(new RestTemplate());
+
+		transactionDao.setConfig(config);
+		transactionDao.setRetryTemplate(retryTemplate);
+		transactionDao.setRestTemplateProxy(restTemplateProxy);
+		AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter();
+		concurrencyLimiter.setConfig(config);
+		transactionDao.setConcurrencyLimiter(concurrencyLimiter);
+		FulfillmentMetrics metrics = new FulfillmentMetrics();
+		metrics.setRegistry(new SimpleMeterRegistry());
+		transactionDao.setMetrics(metrics);
+		RequestHedger requestHedger = new RequestHedger();
+		requestHedger.setConfig(config);
+		transactionDao.setRequestHedger(requestHedger);
+		batcher.setConfig(config);
+		batcher.setTransactionDao(transactionDao);
+		batcher.init();
+	}
+
+	@AfterEach
+	public void teardown() {
+		batcher.shutdown();
+		server.stop();
+	}
+
+	@Test
+	void test_commitReservation_fullBatch() throws Exception {
+		//-Setup -----------
+		List<TraceableMessage<CommitReservationRequest>> messages = setup_messages(5);
+
+		//-Prepare----------------
+		server.setLatency(() -> 200L);
+		CompletableFuture<CommitReservationResponse> inFlight = inFlight(messages.get(0));
+
+		//-Execute----------------
+		// Four commits behind the call in flight fill a batch.
+		List<CompletableFuture<CommitReservationResponse>> futures = new ArrayList<>();
+		futures.add(inFlight);
+		for (TraceableMessage<CommitReservationRequest> message : messages.subList(1, 5)) {
+			futures.add(batcher.submit(message));
+		}
+
+		//-Verify----------------
+		for (int ii = 0; ii < messages.size(); ii++) {
+			CommitReservationResponse response = futures.get(ii).get();
+			assertEquals(CommitReservationResponse.SUCCESS, response.getStatus());
+			assertEquals(messages.get(ii).getPayload().getAccountNumber(), response.getResource().getAccountNumber());
+		}
+		assertEquals(2, server.getBulkCalls());
+		assertEquals(0, server.getSingleCalls());
+	}
+
+	@Test
+	void test_commitReservation_loneCaller() {
+		//-Setup -----------
+		TraceableMessage<CommitReservationRequest> message = setup_messages(1).get(0);
+
+		//-Prepare----------------
+		config.setRestBulkWindow(5000);
+
+		//-Execute----------------
+		long start = System.currentTimeMillis();
+		CommitReservationResponse response = batcher.commitReservation(message);
+		long elapsed = System.currentTimeMillis() - start;
+
+		//-Verify----------------
+		// Sent at once rather than at the end of the window.
+		assertEquals(message.getPayload().getAccountNumber(), response.getResource().getAccountNumber());
+		assertEquals(1, server.getBulkCalls());
+		assertTrue(elapsed < 2000L, Long.toString(elapsed));
+	}
+
+	@Test
+	void test_commitReservation_sentBehindInFlight() throws Exception {
+		//-Setup -----------
+		List<TraceableMessage<CommitReservationRequest>> messages = setup_messages(3);
+
+		//-Prepare----------------
+		config.setRestBulkWindow(5000);
+		server.setLatency(() -> 200L);
+		CompletableFuture<CommitReservationResponse> inFlight = inFlight(messages.get(0));
+
+		//-Execute----------------
+		long start = System.currentTimeMillis();
+		CompletableFuture<CommitReservationResponse> second = batcher.submit(messages.get(1));
+		CompletableFuture<CommitReservationResponse> third = batcher.submit(messages.get(2));
+
+		//-Verify----------------
+		// The two waiting commits go out together as soon as the first call completes, well inside the window.
+		assertNotNull(inFlight.get());
+		assertNotNull(second.get());
+		assertNotNull(third.get());
+		assertTrue(System.currentTimeMillis() - start < 2000L);
+		assertEquals(2, server.getBulkCalls());
+	}
+
+	@Test
+	void test_commitReservation_itemRejected() throws Exception {
+		//-Setup -----------
+		List<TraceableMessage<CommitReservationRequest>> messages = setup_messages(5);
+		String rejected = messages.get(3).getPayload().getAccountNumber();
+
+		//-Prepare----------------
+		server.setRejectWhen(request -> request.getAccountNumber().equals(rejected));
+		server.setLatency(() -> 200L);
+		CompletableFuture<CommitReservationResponse> inFlight = inFlight(messages.get(0));
+
+		//-Execute----------------
+		// Four commits behind the call in flight go out in one bulk call holding the rejected item.
+		List<CompletableFuture<CommitReservationResponse>> futures = new ArrayList<>();
+		futures.add(inFlight);
+		for (TraceableMessage<CommitReservationRequest> message : messages.subList(1, 5)) {
+			futures.add(batcher.submit(message));
+		}
+
+		//-Verify----------------
+		assertNotNull(futures.get(0).get());
+		assertNotNull(futures.get(1).get());
+		assertNotNull(futures.get(2).get());
+		ExecutionException ex = assertThrows(ExecutionException.class, () -> futures.get(3).get());
+		assertTrue(ex.getCause() instanceof NonTransientDataAccessResourceException);
+		assertNotNull(futures.get(4).get());
+		assertEquals(2, server.getBulkCalls());
+		assertEquals(4, server.getLargestBulk());
+	}
+
+	@Test
+	void test_commitReservation_itemMissing() throws Exception {
+		//-Setup -----------
+		List<TraceableMessage<CommitReservationRequest>> messages = setup_messages(3);
+		String omitted = messages.get(2).getPayload().getAccountNumber();
+
+		//-Prepare----------------
+		server.setOmitWhen(request -> request.getAccountNumber().equals(omitted));
+		server.setLatency(() -> 200L);
+		CompletableFuture<CommitReservationResponse> inFlight = inFlight(messages.get(0));
+
+		//-Execute----------------
+		CompletableFuture<CommitReservationResponse> second = batcher.submit(messages.get(1));
+		CompletableFuture<CommitReservationResponse> third = batcher.submit(messages.get(2));
+
+		//-Verify----------------
+		// The bulk response can not be trusted, so every commit in it fails and names the missing index.
+		assertNotNull(inFlight.get());
+		ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get());
+		assertTrue(ex.getCause() instanceof NonTransientDataAccessResourceException);
+		assertTrue(ex.getCause().getMessage().contains("index 1"), ex.getCause().getMessage());
+		ex = assertThrows(ExecutionException.class, () -> third.get());
+		assertTrue(ex.getCause() instanceof NonTransientDataAccessResourceException);
+	}
+
+	@Test
+	void test_commitReservation_bulkCallFails() {
+		//-Setup -----------
+		TraceableMessage<CommitReservationRequest> message = setup_messages(1).get(0);
+
+		//-Prepare----------------
+		server.setFailWithStatus(500);
+
+		//-Execute----------------
+		assertThrows(HttpServerErrorException.class, () -> {
+			batcher.commitReservation(message);
+		});
+	}
+
+	// Starts a lone commit and waits for its bulk call to reach the server.
+	private CompletableFuture<CommitReservationResponse> inFlight(TraceableMessage<CommitReservationRequest> message) 
+			throws InterruptedException {
+		CompletableFuture<CommitReservationResponse> future = CompletableFuture.supplyAsync(() -> batcher.commitReservation(message));
+		while (server.getBulkCalls() == 0) {
+			Thread.sleep(5L);
+		}
+		return future;
+	}
+
+	List<TraceableMessage<CommitReservationRequest>> setup_messages(int count) {
+		List<TraceableMessage<CommitReservationRequest>> messages = new ArrayList<>();
+		for (int ii = 0; ii < count; ii++) {
+			TraceableMessage<CommitReservationRequest> message = new TraceableMessage<CommitReservationRequest>();
+			message.setBusinessTaxonomyId("jskdfjsdjfls");
+			message.setCorrelationId("sdjfsjdlfjslkdfj");
+			message.setMessageCreationTime(LocalDateTime.now());
+			message.setProducerAit("234234");
+			message.setPayload(new CommitReservationRequest());
+			message.getPayload().setAccountNumber("12345634579" + ii);
+			message.getPayload().setReservationUuid(UUID.randomUUID());
+			message.getPayload().setRequestUuid(UUID.randomUUID());
+			message.getPayload().setTransactionMetaDataJson("{}");
+			messages.add(message);
+		}
+		return messages;
+	}
+}
@@ -0,0 +1,73 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import qslv.transaction.resource.TransactionResource;
+import qslv.transaction.response.CommitReservationResponse;
+
+class Unit_CommitResponseCache_get {
+	ConfigProperties config = new ConfigProperties();
+	CommitResponseCache cache = new CommitResponseCache();
+
+	@BeforeEach
+	public void setup() {
+		config.setCommitCacheSize(100);
+		config.setCommitCacheTtl(60000);
+		cache.setConfig(config);
+		cache.init();
+	}
+
+	@Test
+	void test_get_hitAndMiss() {
+		//-Setup -----------
+		UUID requestUuid = UUID.randomUUID();
+		CommitReservationResponse response = new CommitReservationResponse(CommitReservationResponse.SUCCESS, new TransactionResource());
+
+		//-Execute----------------
+		assertNull(cache.get(requestUuid));
+		cache.put(requestUuid, response);
+
+		//-Verify----------------
+		assertSame(response, cache.get(requestUuid));
+		assertNull(cache.get(UUID.randomUUID()));
+		assertEquals(1, cache.stats().hitCount());
+		assertEquals(2, cache.stats().missCount());
+	}
+
+	@Test
+	void test_get_disabled() {
+		//-Setup -----------
+		config.setCommitCacheSize(0);
+		CommitResponseCache disabled = new CommitResponseCache();
+		disabled.setConfig(config);
+		disabled.init();
+		UUID requestUuid = UUID.randomUUID();
+
+		//-Execute----------------
+		disabled.put(requestUuid, new CommitReservationResponse());
+
+		//-Verify----------------
+		assertNull(disabled.get(requestUuid));
+		assertEquals(0, disabled.stats().requestCount());
+	}
+
+	@Test
+	void test_bindTo_publishesCounters() {
+		//-Setup -----------
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+		//-Execute----------------
+		cache.bindTo(registry);
+		cache.get(UUID.randomUUID());
+
+		//-Verify----------------
+		assertEquals(1.0, registry.get("cache.gets").tag("cache", "commitResponseCache").tag("result", "miss").functionCounter().count());
+		assertNotNull(registry.get("cache.evictions").tag("cache", "commitResponseCache").functionCounter());
+	}
+}
@@ -0,0 +1,128 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpStatus;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class Unit_CommitRetryPolicy_canRetry {
+	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	RetryBudget retryBudget = new RetryBudget();
+	RetryTemplate retryTemplate = new RetryTemplate();
+	List<Long> sleeps = new ArrayList<>();
+
+	@BeforeEach
+	public void setup() {
+		config.setRestRetryBudget(20);
+		retryBudget.setConfig(config);
+		retryBudget.init();
+		retryBudget.bindTo(meterRegistry);
+		retryTemplate.setThrowLastExceptionOnExhausted(true);
+		retryTemplate.setRetryPolicy(new CommitRetryPolicy(3, retryBudget));
+		retryTemplate.setBackOffPolicy(new DecorrelatedJitterBackOffPolicy(100L, 500L).withSleeper(sleeps::add));
+	}
+
+	@Test
+	void test_canRetry_classification() {
+		assertTrue(CommitRetryPolicy.isRetryable(new ResourceAccessException("timeout", new SocketTimeoutException())));
+		assertTrue(CommitRetryPolicy.isRetryable(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+		assertTrue(CommitRetryPolicy.isRetryable(new HttpServerErrorException(HttpStatus.GATEWAY_TIMEOUT)));
+		assertTrue(CommitRetryPolicy.isRetryable(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+		assertFalse(CommitRetryPolicy.isRetryable(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR)));
+		assertFalse(CommitRetryPolicy.isRetryable(new HttpClientErrorException(HttpStatus.BAD_REQUEST)));
+		assertFalse(CommitRetryPolicy.isRetryable(new TransientDataAccessResourceException("Concurrency limit 2 reached.")));
+	}
+
+	@Test
+	void test_canRetry_notRetryable() {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		assertThrows(HttpServerErrorException.class, () -> retryTemplate.execute(context -> {
+			attempts.incrementAndGet();
+			throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+		}));
+
+		//--Verify--------------
+		assertEquals(1, attempts.get());
+		assertTrue(sleeps.isEmpty());
+	}
+
+	@Test
+	void test_canRetry_jitteredBackoff() {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		assertThrows(ResourceAccessException.class, () -> retryTemplate.execute(context -> {
+			attempts.incrementAndGet();
+			throw new ResourceAccessException("timeout");
+		}));
+
+		//--Verify--------------
+		assertEquals(3, attempts.get());
+		assertEquals(2, sleeps.size());
+		assertTrue(sleeps.get(0) >= 100L && sleeps.get(0) <= 300L);
+		assertTrue(sleeps.get(1) >= 100L && sleeps.get(1) <= 500L);
+	}
+
+	@Test
+	void test_canRetry_budgetExhausted() {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		// Ten saved retries, then every call gets a single attempt.
+		for (int i = 0; i < 10; i++) {
+			assertThrows(ResourceAccessException.class, () -> retryTemplate.execute(context -> {
+				attempts.incrementAndGet();
+				throw new ResourceAccessException("timeout");
+			}));
+		}
+
+		//--Verify--------------
+		assertEquals(20, attempts.get());
+		assertEquals(10, sleeps.size());
+		assertEquals(5.0, meterRegistry.get("qslv.rest.retries.denied").counter().count());
+	}
+
+	@Test
+	void test_canRetry_budgetRefilled() {
+		//--Prepare--------------
+		for (int i = 0; i < 10; i++) {
+			retryBudget.tryWithdraw();
+		}
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		for (int i = 0; i < 5; i++) {
+			retryBudget.deposit();
+		}
+		String result = retryTemplate.execute(context -> {
+			if ( attempts.incrementAndGet() == 1 ) {
+				throw new ResourceAccessException("timeout");
+			}
+			return "committed";
+		});
+
+		//--Verify--------------
+		// Five successes at 20 percent earn one retry.
+		assertEquals("committed", result);
+		assertEquals(2, attempts.get());
+	}
+}
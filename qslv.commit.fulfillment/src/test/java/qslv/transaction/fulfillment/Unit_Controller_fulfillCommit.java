@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -18,7 +19,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import qslv.common.kafka.ResponseMessage;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
@@ -38,6 +48,13 @@ class Unit_Controller_fulfillCommit {
 	private KafkaProducerDao kafkaDao;
 	@Mock
 	Acknowledgment acknowledgment;
+	@Mock
+	CommitReservationBatcher commitReservationBatcher;
+	@Mock
+	ListenerDrain listenerDrain;
+	CommitResponseCache commitResponseCache = new CommitResponseCache();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	FulfillmentMetrics metrics = new FulfillmentMetrics();
 	@Captor
 	ArgumentCaptor<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> captor;
 	
@@ -49,6 +66,20 @@ class Unit_Controller_fulfillCommit {
 		fulfillmentControllerService.setConfig(config);
 		fulfillmentControllerService.setKafkaDao(kafkaDao);
 		fulfillmentControllerService.setTransactionDao(transactionDao);
+		fulfillmentControllerService.setCommitReservationBatcher(commitReservationBatcher);
+		commitResponseCache.setConfig(config);
+		commitResponseCache.init();
+		fulfillmentControllerService.setCommitResponseCache(commitResponseCache);
+		ReplyJournal replyJournal = new ReplyJournal();
+		replyJournal.setConfig(config);
+		fulfillmentControllerService.setReplyJournal(replyJournal);
+		PriorityLanes priorityLanes = new PriorityLanes();
+		priorityLanes.setConfig(config);
+		priorityLanes.init();
+		fulfillmentControllerService.setPriorityLanes(priorityLanes);
+		metrics.setRegistry(meterRegistry);
+		fulfillmentControllerService.setMetrics(metrics);
+		fulfillmentControllerService.setListenerDrain(listenerDrain);
 	}
 
 	@Test
@@ -67,6 +98,8 @@ class Unit_Controller_fulfillCommit {
 		
 		//--Verify------------------------
 		verify(kafkaDao).produceCommit(captor.capture());
+		assertEquals(1, meterRegistry.get("qslv.fulfillment.end.to.end").tag("outcome", FulfillmentMetrics.SUCCESS).timer().count());
+		assertEquals(1, meterRegistry.get("qslv.fulfillment.validation").timer().count());
 		
 		TraceableMessage<?> trace = captor.getValue();
 		assertEquals(trace.getBusinessTaxonomyId(), request.getBusinessTaxonomyId());
@@ -95,6 +128,105 @@ class Unit_Controller_fulfillCommit {
 		//--Verify------------------------
 	}
 	
+	@Test
+	void test_fulfillCommit_transactionAborted() {
+		//-- Setup ------------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		ReplyJournal replyJournal = mock(ReplyJournal.class);
+		fulfillmentControllerService.setReplyJournal(replyJournal);
+		TransactionTemplate transaction = new TransactionTemplate(new StubTransactionManager());
+
+		//--Prepare----------------------
+		doReturn(setup_response()).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+
+		//--Execute-----------------------
+		// As the exactly-once container does: the reply is sent inside a transaction that then aborts.
+		transaction.execute(status -> {
+			fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+			status.setRollbackOnly();
+			return null;
+		});
+
+		//--Verify------------------------
+		// The journal entry stays, so the redelivered request does not commit again.
+		verify(replyJournal).append(eq(request.getPayload().getRequestUuid()), any());
+		verify(replyJournal, never()).acknowledge(any());
+	}
+
+	@Test
+	void test_fulfillCommit_transactionCommitted() {
+		//-- Setup ------------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		ReplyJournal replyJournal = mock(ReplyJournal.class);
+		fulfillmentControllerService.setReplyJournal(replyJournal);
+		TransactionTemplate transaction = new TransactionTemplate(new StubTransactionManager());
+
+		//--Prepare----------------------
+		doReturn(setup_response()).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+
+		//--Execute-----------------------
+		transaction.execute(status -> {
+			fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+			verify(replyJournal, never()).acknowledge(any());
+			return null;
+		});
+
+		//--Verify------------------------
+		verify(replyJournal).acknowledge(request.getPayload().getRequestUuid());
+	}
+
+	@Test
+	void test_fulfillCommit_restUnavailableExhausted() throws Exception {
+		//-- Setup ------------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		StubTransactionServer server = new StubTransactionServer().start();
+
+		//--Prepare----------------------
+		// A real DAO whose three attempts all get a 503.
+		ConfigProperties restConfig = new ConfigProperties();
+		restConfig.setAitid("234523");
+		restConfig.setCommitReservationUrl(server.getCommitReservationUrl());
+		restConfig.setRestAttempts(3);
+		RetryBudget retryBudget = new RetryBudget();
+		retryBudget.setConfig(restConfig);
+		retryBudget.init();
+		RetryTemplate retryTemplate = new RetryTemplate();
+		retryTemplate.setThrowLastExceptionOnExhausted(true);
+		retryTemplate.setRetryPolicy(new CommitRetryPolicy(restConfig.getRestAttempts(), retryBudget));
+		RestTemplateProxy restTemplateProxy = new RestTemplateProxy();
+		restTemplateProxy.setRestTemplate(new RestTemplate());
+		TransactionDao restDao = new TransactionDao();
+		restDao.setConfig(restConfig);
+		restDao.setRetryTemplate(retryTemplate);
+		restDao.setRestTemplateProxy(restTemplateProxy);
+		AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter();
+		concurrencyLimiter.setConfig(restConfig);
+		restDao.setConcurrencyLimiter(concurrencyLimiter);
+		restDao.setMetrics(metrics);
+		RequestHedger requestHedger = new RequestHedger();
+		requestHedger.setConfig(restConfig);
+		restDao.setRequestHedger(requestHedger);
+		fulfillmentControllerService.setTransactionDao(restDao);
+		server.setFailWithStatus(503);
+		doNothing().when(acknowledgment).nack(anyLong());
+
+		//--Execute-----------------------
+		try {
+			fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+		} finally {
+			server.stop();
+		}
+
+		//--Verify------------------------
+		// Still transient once the retries are spent, so the request stays on Kafka rather than failing for good.
+		assertEquals(3, server.getSingleCalls());
+		verify(acknowledgment).nack(anyLong());
+		verify(kafkaDao, never()).produceCommit(any());
+		assertEquals(1, meterRegistry.get("qslv.fulfillment.end.to.end").tag("outcome", FulfillmentMetrics.RETRY).timer().count());
+	}
+
 	@Test
 	void test_fulfillCommit_restFailure() {
 		//-- Setup ------------------
@@ -168,6 +300,78 @@ class Unit_Controller_fulfillCommit {
 		//--Verify------------------------
 	}
 	
+	@Test
+	void test_fulfillCommit_duplicateFromCache() {
+		//-- Setup ------------------
+		ConfigProperties cacheConfig = new ConfigProperties();
+		CommitResponseCache enabledCache = new CommitResponseCache();
+		enabledCache.setConfig(cacheConfig);
+		enabledCache.init();
+		fulfillmentControllerService.setCommitResponseCache(enabledCache);
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+		fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+
+		//--Verify------------------------
+		verify(transactionDao, times(1)).commitReservation(any(), any());
+		verify(kafkaDao, times(2)).produceCommit(captor.capture());
+		assertSame(commitResponse, captor.getValue().getPayload().getResponse());
+		verify(acknowledgment, times(2)).acknowledge();
+		assertEquals(1, enabledCache.stats().hitCount());
+		assertEquals(1, enabledCache.stats().missCount());
+	}
+
+	@Test
+	void test_fulfillCommit_forwardToRetry() {
+		//-- Setup ------------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		SettableListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> forwarded = new SettableListenableFuture<>();
+		forwarded.set(null);
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isKafkaRetryEnabled();
+		doThrow(new TransientDataAccessResourceException("werwer")).when(transactionDao).commitReservation(any(), any());
+		doReturn(forwarded).when(kafkaDao).produceRetry(any(), anyInt());
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+
+		//--Verify------------------------
+		verify(kafkaDao).produceRetry(same(request), eq(1));
+		verify(kafkaDao, never()).produceCommit(any());
+		verify(acknowledgment).acknowledge();
+		verify(acknowledgment, never()).nack(anyLong());
+	}
+
+	@Test
+	void test_fulfillRetry_forwardNextTier() {
+		//-- Setup ------------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isKafkaRetryEnabled();
+		doThrow(new TransientDataAccessResourceException("werwer")).when(transactionDao).commitReservation(any(), any());
+		doThrow(new TransientDataAccessResourceException("Kafka Producer failure")).when(kafkaDao).produceRetry(any(), anyInt());
+		doNothing().when(acknowledgment).nack(anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillRetry(request, 2, acknowledgment);
+
+		//--Verify------------------------
+		verify(kafkaDao).produceRetry(same(request), eq(3));
+		verify(acknowledgment).nack(anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
 	@Test
 	void test_validateInput() {
 		int count = 1;
@@ -269,6 +473,44 @@ class Unit_Controller_fulfillCommit {
 		//--Verify------------------------
 	}
 	
+	@Test
+	void test_fulfillCommit_priorityLane() {
+		//-- Setup ------------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		ConfigProperties.Lane lane = new ConfigProperties.Lane();
+		lane.setProducerAits(Collections.singletonList(request.getProducerAit()));
+		SettableListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> moved = new SettableListenableFuture<>();
+		moved.set(null);
+
+		//--Prepare----------------------
+		doReturn(Collections.singletonMap("bulk", lane)).when(config).getKafkaLanes();
+		PriorityLanes priorityLanes = new PriorityLanes();
+		priorityLanes.setConfig(config);
+		priorityLanes.init();
+		fulfillmentControllerService.setPriorityLanes(priorityLanes);
+		doReturn(moved).when(kafkaDao).produceLane(any(), eq("bulk"));
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommit(request, acknowledgment);
+
+		//--Verify------------------------
+		verify(kafkaDao).produceLane(same(request), eq("bulk"));
+		verify(transactionDao, never()).commitReservation(any(), any());
+		verify(kafkaDao, never()).produceCommit(any());
+		verify(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		// Taken from the lane's topic it is processed, not moved again.
+		doReturn(setup_response()).when(transactionDao).commitReservation(any(), any());
+		fulfillmentControllerService.fulfillLaneCommit(request, acknowledgment);
+
+		//--Verify------------------------
+		verify(kafkaDao, times(1)).produceLane(any(), any());
+		verify(transactionDao).commitReservation(any(), any());
+		verify(kafkaDao).produceCommit(any());
+	}
+
 	CommitReservationResponse setup_response() {
 		CommitReservationResponse commitResponse = new CommitReservationResponse();
 		commitResponse.setResource(new TransactionResource());
@@ -288,4 +530,22 @@ class Unit_Controller_fulfillCommit {
 		request.getPayload().setTransactionMetaDataJson("{}");
 		return request;
 	}
+
+	// Stands in for the Kafka transaction manager; only transaction synchronization matters here.
+	@SuppressWarnings("serial")
+	static class StubTransactionManager extends AbstractPlatformTransactionManager {
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+		}
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	}
 }
@@ -0,0 +1,499 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.resource.TransactionResource;
+import qslv.transaction.response.CommitReservationResponse;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class Unit_Controller_fulfillCommits {
+	FulfillmentControllerService fulfillmentControllerService = new FulfillmentControllerService();
+	@Mock
+	private ConfigProperties config;
+	@Mock
+	TransactionDao transactionDao;
+	@Mock
+	ReactiveTransactionDao reactiveTransactionDao;
+	@Mock
+	private KafkaProducerDao kafkaDao;
+	@Mock
+	Acknowledgment acknowledgment;
+	@Mock
+	CommitReservationBatcher commitReservationBatcher;
+	@Mock
+	ListenerDrain listenerDrain;
+	CommitResponseCache commitResponseCache = new CommitResponseCache();
+	KeyOrderedExecutor keyOrderedExecutor = new KeyOrderedExecutor();
+	@Captor
+	ArgumentCaptor<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> captor;
+
+	@BeforeEach
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		fulfillmentControllerService.setConfig(config);
+		fulfillmentControllerService.setKafkaDao(kafkaDao);
+		fulfillmentControllerService.setTransactionDao(transactionDao);
+		fulfillmentControllerService.setReactiveTransactionDao(reactiveTransactionDao);
+		fulfillmentControllerService.setCommitReservationBatcher(commitReservationBatcher);
+		commitResponseCache.setConfig(config);
+		commitResponseCache.init();
+		fulfillmentControllerService.setCommitResponseCache(commitResponseCache);
+		ReplyJournal replyJournal = new ReplyJournal();
+		replyJournal.setConfig(config);
+		fulfillmentControllerService.setReplyJournal(replyJournal);
+		PriorityLanes priorityLanes = new PriorityLanes();
+		priorityLanes.setConfig(config);
+		priorityLanes.init();
+		fulfillmentControllerService.setPriorityLanes(priorityLanes);
+		FulfillmentMetrics metrics = new FulfillmentMetrics();
+		metrics.setRegistry(new SimpleMeterRegistry());
+		fulfillmentControllerService.setMetrics(metrics);
+		fulfillmentControllerService.setListenerDrain(listenerDrain);
+		keyOrderedExecutor.setConfig(config);
+		keyOrderedExecutor.init();
+		fulfillmentControllerService.setKeyOrderedExecutor(keyOrderedExecutor);
+	}
+
+	@Test
+	void test_fulfillCommits_success() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		verify(transactionDao, times(3)).commitReservation(any(), any());
+		verify(kafkaDao, times(3)).produceCommit(captor.capture());
+		verify(acknowledgment, times(1)).acknowledge();
+		verify(acknowledgment, never()).nack(anyInt(), anyLong());
+		for (int ii = 0; ii < records.size(); ii++) {
+			assertSame(records.get(ii).value().getPayload(), captor.getAllValues().get(ii).getPayload().getRequest());
+		}
+	}
+
+	@Test
+	void test_fulfillCommits_restNotAvailable() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(commitResponse)
+			.doThrow(new TransientDataAccessResourceException("werwer"))
+			.when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		verify(transactionDao, times(2)).commitReservation(any(), any());
+		verify(kafkaDao, times(1)).produceCommit(any());
+		verify(acknowledgment).nack(eq(1), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_malformedInMiddle() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+		records.get(1).value().getPayload().setRequestUuid(null);
+
+		//--Prepare----------------------
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		verify(transactionDao, times(2)).commitReservation(any(), any());
+		verify(kafkaDao, times(3)).produceCommit(captor.capture());
+		assertEquals(ResponseMessage.MALFORMED_MESSAGE, captor.getAllValues().get(1).getPayload().getStatus());
+		verify(acknowledgment, times(1)).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_kafkaNotAvailable() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doThrow(new TransientDataAccessResourceException(";asdufgha;")).when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		verify(acknowledgment).nack(eq(0), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_draining() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(false, true).when(listenerDrain).isDraining();
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		// The record in flight completes, the rest go back to Kafka.
+		verify(transactionDao, times(1)).commitReservation(any(), any());
+		verify(kafkaDao, times(1)).produceCommit(any());
+		verify(acknowledgment).nack(eq(1), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_keyOrdered() throws InterruptedException {
+		//-- Setup ------------------
+		ConfigProperties keyedConfig = new ConfigProperties();
+		keyedConfig.setKafkaKeyedConcurrency(4);
+		KeyOrderedExecutor keyedExecutor = new KeyOrderedExecutor();
+		keyedExecutor.setConfig(keyedConfig);
+		keyedExecutor.init();
+		fulfillmentControllerService.setKeyOrderedExecutor(keyedExecutor);
+
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(4);
+		records.get(0).value().getPayload().setAccountNumber("AAAAAAAA");
+		records.get(1).value().getPayload().setAccountNumber("BBBBBBBB");
+		records.get(2).value().getPayload().setAccountNumber("AAAAAAAA");
+		records.get(3).value().getPayload().setAccountNumber("BBBBBBBB");
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doAnswer(invocation -> {
+			CommitReservationRequest request = invocation.getArgument(1);
+			if (request.getAccountNumber().equals("BBBBBBBB")) {
+				throw new TransientDataAccessResourceException("werwer");
+			}
+			return commitResponse;
+		}).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+		keyedExecutor.shutdown();
+
+		//--Verify------------------------
+		verify(transactionDao, times(3)).commitReservation(any(), any());
+		verify(kafkaDao, times(2)).produceCommit(any());
+		verify(acknowledgment).nack(eq(1), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_keyOrderedExactlyOnce() throws InterruptedException {
+		//-- Setup ------------------
+		ConfigProperties keyedConfig = new ConfigProperties();
+		keyedConfig.setKafkaKeyedConcurrency(4);
+		KeyOrderedExecutor keyedExecutor = new KeyOrderedExecutor();
+		keyedExecutor.setConfig(keyedConfig);
+		keyedExecutor.init();
+		fulfillmentControllerService.setKeyOrderedExecutor(keyedExecutor);
+
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(4);
+		records.get(0).value().getPayload().setAccountNumber("AAAAAAAA");
+		records.get(1).value().getPayload().setAccountNumber("BBBBBBBB");
+		records.get(2).value().getPayload().setAccountNumber("AAAAAAAA");
+		records.get(3).value().getPayload().setAccountNumber("BBBBBBBB");
+		CommitReservationResponse commitResponse = setup_response();
+		List<Thread> producingThreads = new ArrayList<>();
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isKafkaExactlyOnce();
+		doAnswer(invocation -> {
+			CommitReservationRequest request = invocation.getArgument(1);
+			if (request.getAccountNumber().equals("BBBBBBBB")) {
+				throw new TransientDataAccessResourceException("werwer");
+			}
+			return commitResponse;
+		}).when(transactionDao).commitReservation(any(), any());
+		doAnswer(invocation -> producingThreads.add(Thread.currentThread())).when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+		keyedExecutor.shutdown();
+
+		//--Verify------------------------
+		// The second BBBBBBBB is skipped behind the failed first one, replies stop at the failure.
+		verify(transactionDao, times(3)).commitReservation(any(), any());
+		verify(kafkaDao, times(1)).produceCommit(any());
+		assertEquals(Thread.currentThread(), producingThreads.get(0));
+		verify(acknowledgment).nack(eq(1), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_keyOrderedExactlyOnceNoAccount() throws InterruptedException {
+		//-- Setup ------------------
+		ConfigProperties keyedConfig = new ConfigProperties();
+		keyedConfig.setKafkaKeyedConcurrency(4);
+		KeyOrderedExecutor keyedExecutor = new KeyOrderedExecutor();
+		keyedExecutor.setConfig(keyedConfig);
+		keyedExecutor.init();
+		fulfillmentControllerService.setKeyOrderedExecutor(keyedExecutor);
+
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(2);
+		records.get(0).value().getPayload().setAccountNumber(null);
+		records.get(1).value().getPayload().setAccountNumber(null);
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isKafkaExactlyOnce();
+		doThrow(new TransientDataAccessResourceException("werwer")).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+		keyedExecutor.shutdown();
+
+		//--Verify------------------------
+		// Without an account there is nothing to order behind, the recoverable failure is redelivered.
+		verify(transactionDao, times(2)).commitReservation(any(), any());
+		verify(kafkaDao, never()).produceCommit(any());
+		verify(acknowledgment).nack(eq(0), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_asyncProduce() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+		SettableListenableFuture<SendResult<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>>> durable 
+			= new SettableListenableFuture<>();
+		durable.set(null);
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isKafkaAsyncProduce();
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doReturn(durable).when(kafkaDao).produceCommitAsync(any());
+		doNothing().when(kafkaDao).flush();
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		verify(kafkaDao, times(3)).produceCommitAsync(any());
+		verify(kafkaDao, never()).produceCommit(any());
+		verify(kafkaDao).flush();
+		verify(acknowledgment, times(1)).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_asyncProduceFails() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(3);
+		CommitReservationResponse commitResponse = setup_response();
+		SettableListenableFuture<SendResult<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>>> durable 
+			= new SettableListenableFuture<>();
+		durable.set(null);
+		SettableListenableFuture<SendResult<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>>> failed 
+			= new SettableListenableFuture<>();
+		failed.setException(new KafkaException("Send failed"));
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isKafkaAsyncProduce();
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doReturn(durable).doReturn(failed).doReturn(durable).when(kafkaDao).produceCommitAsync(any());
+		doNothing().when(kafkaDao).flush();
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		verify(acknowledgment).nack(eq(1), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void test_fulfillCommits_reactive() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(10);
+		for (int ii = 0; ii < records.size(); ii++) {
+			records.get(ii).value().getPayload().setAccountNumber("ACCOUNT" + ii);
+		}
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isRestReactive();
+		doReturn(Mono.delay(Duration.ofMillis(200)).map(tick -> commitResponse))
+			.when(reactiveTransactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).acknowledge();
+
+		//--Execute-----------------------
+		long start = System.currentTimeMillis();
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+		long elapsed = System.currentTimeMillis() - start;
+
+		//--Verify------------------------
+		assertTrue(elapsed < 1000, "commits should be in flight together, took " + elapsed + " ms");
+		verify(reactiveTransactionDao, times(10)).commitReservation(any(), any());
+		verify(transactionDao, never()).commitReservation(any(), any());
+		verify(kafkaDao, times(10)).produceCommit(captor.capture());
+		verify(acknowledgment, times(1)).acknowledge();
+		for (int ii = 0; ii < records.size(); ii++) {
+			assertSame(records.get(ii).value().getPayload(), captor.getAllValues().get(ii).getPayload().getRequest());
+		}
+	}
+
+	@Test
+	void test_fulfillCommits_reactiveSameAccount() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(4);
+		records.get(0).value().getPayload().setAccountNumber("AAAAAAAA");
+		records.get(1).value().getPayload().setAccountNumber("BBBBBBBB");
+		records.get(2).value().getPayload().setAccountNumber("AAAAAAAA");
+		records.get(3).value().getPayload().setAccountNumber("BBBBBBBB");
+		records.get(2).value().getPayload().setTransactionMetaDataJson(null);
+		CommitReservationResponse commitResponse = setup_response();
+
+		//--Prepare----------------------
+		doReturn(true).when(config).isRestReactive();
+		doAnswer(invocation -> {
+			CommitReservationRequest request = invocation.getArgument(1);
+			if (request.getAccountNumber().equals("BBBBBBBB")) {
+				return Mono.error(new TransientDataAccessResourceException("werwer"));
+			}
+			return Mono.just(commitResponse);
+		}).when(reactiveTransactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		// The malformed AAAAAAAA record is not sent, the second BBBBBBBB waits behind the failed first one.
+		verify(reactiveTransactionDao, times(2)).commitReservation(any(), any());
+		verify(kafkaDao, times(1)).produceCommit(any());
+		verify(acknowledgment).nack(eq(1), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	CommitReservationResponse setup_response() {
+		CommitReservationResponse commitResponse = new CommitReservationResponse();
+		commitResponse.setResource(new TransactionResource());
+		return commitResponse;
+	}
+
+	@Test
+	void test_fulfillCommits_priorityLane() {
+		//-- Setup ------------------
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = setup_records(4);
+		records.get(1).value().setBusinessTaxonomyId("BULK");
+		records.get(3).value().setBusinessTaxonomyId("BULK");
+		CommitReservationResponse commitResponse = setup_response();
+		SettableListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> moved = new SettableListenableFuture<>();
+		moved.set(null);
+		SettableListenableFuture<SendResult<String, TraceableMessage<CommitReservationRequest>>> failed = new SettableListenableFuture<>();
+		failed.setException(new KafkaException("Send failed"));
+
+		//--Prepare----------------------
+		setup_lane("bulk", "BULK");
+		doReturn(commitResponse).when(transactionDao).commitReservation(any(), any());
+		doNothing().when(kafkaDao).produceCommit(any());
+		doReturn(moved).doReturn(failed).when(kafkaDao).produceLane(any(), eq("bulk"));
+		doNothing().when(acknowledgment).nack(anyInt(), anyLong());
+
+		//--Execute-----------------------
+		fulfillmentControllerService.fulfillCommits(records, acknowledgment);
+
+		//--Verify------------------------
+		// Both other records are processed here, the failed move of the last record holds it on Kafka.
+		verify(transactionDao, times(2)).commitReservation(any(), any());
+		verify(kafkaDao, times(2)).produceCommit(any());
+		verify(kafkaDao).produceLane(same(records.get(1).value()), eq("bulk"));
+		verify(kafkaDao).produceLane(same(records.get(3).value()), eq("bulk"));
+		verify(acknowledgment).nack(eq(3), anyLong());
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	private void setup_lane(String lane, String taxonomy) {
+		ConfigProperties.Lane properties = new ConfigProperties.Lane();
+		properties.setBusinessTaxonomyIds(Collections.singletonList(taxonomy));
+		doReturn(Collections.singletonMap(lane, properties)).when(config).getKafkaLanes();
+		PriorityLanes priorityLanes = new PriorityLanes();
+		priorityLanes.setConfig(config);
+		priorityLanes.init();
+		fulfillmentControllerService.setPriorityLanes(priorityLanes);
+	}
+
+	private List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> setup_records(int count) {
+		List<ConsumerRecord<String, TraceableMessage<CommitReservationRequest>>> records = new ArrayList<>();
+		for (int ii = 0; ii < count; ii++) {
+			TraceableMessage<CommitReservationRequest> request = setup_request();
+			records.add(new ConsumerRecord<>("commit.request.queue", 0, ii, request.getPayload().getAccountNumber(), request));
+		}
+		return records;
+	}
+
+	private TraceableMessage<CommitReservationRequest> setup_request() {
+		TraceableMessage<CommitReservationRequest> request = new TraceableMessage<>();
+		request.setBusinessTaxonomyId("38923748273482");
+		request.setCorrelationId("2387429837428374");
+		request.setMessageCreationTime(LocalDateTime.now());
+		request.setProducerAit("2345");
+		request.setPayload(new CommitReservationRequest());
+		request.getPayload().setAccountNumber("23874923749823");
+		request.getPayload().setRequestUuid(UUID.randomUUID());
+		request.getPayload().setReservationUuid(UUID.randomUUID());
+		request.getPayload().setTransactionMetaDataJson("{}");
+		return request;
+	}
+}
@@ -0,0 +1,66 @@
+package qslv.transaction.fulfillment;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+@ExtendWith(MockitoExtension.class)
+class Unit_KafkaCommitListener_onRetryMessage {
+	KafkaCommitListener kafkaCommitListener = new KafkaCommitListener();
+	@Mock
+	FulfillmentControllerService fulfillmentController;
+	@Mock
+	Acknowledgment acknowledgment;
+
+	@BeforeEach
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		kafkaCommitListener.setFulfillmentController(fulfillmentController);
+	}
+
+	@Test
+	void test_onRetryMessage_nackCapped() {
+		//--Prepare--------------
+		ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record = setup_record(System.currentTimeMillis() + 60000L);
+
+		//--Execute--------------
+		kafkaCommitListener.onRetryMessage(record, acknowledgment);
+
+		//--Verify--------------
+		// A minute early, the consumer sleeps no more than the cap and is redelivered the record.
+		verify(acknowledgment).nack(KafkaCommitListener.MAX_NACK_SLEEP);
+		verify(fulfillmentController, never()).fulfillRetry(any(), anyInt(), any());
+	}
+
+	@Test
+	void test_onRetryMessage_nackUntilDue() {
+		//--Prepare--------------
+		ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record = setup_record(System.currentTimeMillis() + 1000L);
+
+		//--Execute--------------
+		kafkaCommitListener.onRetryMessage(record, acknowledgment);
+
+		//--Verify--------------
+		verify(acknowledgment).nack(longThat(wait -> wait > 0L && wait <= 1000L));
+	}
+
+	private ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> setup_record(long due) {
+		ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record = 
+				new ConsumerRecord<>("commit.request.queue.retry.2", 0, 0L, "1234", new TraceableMessage<>());
+		record.headers().add(KafkaProducerDao.RETRY_DUE_HEADER, Long.toString(due).getBytes(StandardCharsets.UTF_8));
+		return record;
+	}
+}
@@ -3,11 +3,17 @@ package qslv.transaction.fulfillment;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +26,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.util.concurrent.ListenableFuture;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import qslv.common.kafka.ResponseMessage;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
@@ -29,20 +36,28 @@ import qslv.transaction.response.CommitReservationResponse;
 public class Unit_KafkaDao_commitReservation {
 	KafkaProducerDao kafkaDao = new KafkaProducerDao();
 	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	FulfillmentMetrics metrics = new FulfillmentMetrics();
 	
 	@Mock
 	KafkaTemplate<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitKafkaTemplate;
 	@Mock
 	ListenableFuture<SendResult<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>>> future;
+	@Mock
+	KafkaTemplate<String, TraceableMessage<CommitReservationRequest>> retryKafkaTemplate;
 	
 	{
 		config.setKafkaCommitReplyQueue("CommitURL");
+		config.setKafkaCommitRequestQueue("request.queue");
 		kafkaDao.setConfig(config);
+		metrics.setRegistry(meterRegistry);
+		kafkaDao.setMetrics(metrics);
 	}
 	
 	@BeforeEach
 	public void setup() {
 		kafkaDao.setCommitKafkaTemplate(commitKafkaTemplate);
+		kafkaDao.setRetryKafkaTemplate(retryKafkaTemplate);
 	}
 	
 	TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> setup_message() {
@@ -80,6 +95,7 @@ public class Unit_KafkaDao_commitReservation {
 		ArgumentCaptor<String> arg = ArgumentCaptor.forClass(String.class);
 		verify(commitKafkaTemplate).send(anyString(), arg.capture(), any());
 		assertEquals( arg.getValue(), setup_message.getPayload().getRequest().getAccountNumber());
+		assertEquals(1, meterRegistry.get("qslv.fulfillment.produce").tag("outcome", FulfillmentMetrics.SUCCESS).timer().count());
 	}
 	
 	@Test
@@ -98,4 +114,112 @@ public class Unit_KafkaDao_commitReservation {
 		});
 	}
 
+	@Test
+	public void test_produceCommitAsync_success() throws InterruptedException, ExecutionException {
+
+		//-Setup---------------
+		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> setup_message = setup_message();
+
+		//-Prepare---------------
+		doReturn(future).when(commitKafkaTemplate).send(anyString(), anyString(), any());
+
+		//-Execute----------------------------		
+		ListenableFuture<?> result = kafkaDao.produceCommitAsync(setup_message);
+
+		//-Verify----------------------------		
+		assertSame(future, result);
+		verify(future, never()).get();
+		ArgumentCaptor<String> arg = ArgumentCaptor.forClass(String.class);
+		verify(commitKafkaTemplate).send(anyString(), arg.capture(), any());
+		assertEquals( arg.getValue(), setup_message.getPayload().getRequest().getAccountNumber());
+	}
+
+	@Test
+	public void test_produceCommitAsync_throwsTransient() {
+
+		//-Prepare---------------
+		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> setup_message = setup_message();
+
+		//-Prepare---------------
+		doThrow(new org.apache.kafka.common.errors.TimeoutException("max.block.ms")).when(commitKafkaTemplate).send(anyString(), anyString(), any());
+
+		//--Execute--------------	
+		assertThrows(TransientDataAccessResourceException.class, () -> {
+			kafkaDao.produceCommitAsync(setup_message);
+		});
+	}
+
+	@Test
+	public void test_produceRetry_tiers() {
+
+		//-Setup---------------
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber("2839420384902");
+
+		//-Execute----------------------------
+		kafkaDao.produceRetry(message, 1);
+		kafkaDao.produceRetry(message, 2);
+		kafkaDao.produceRetry(message, 5);
+
+		//-Verify----------------------------
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<ProducerRecord<String, TraceableMessage<CommitReservationRequest>>> arg = ArgumentCaptor.forClass(ProducerRecord.class);
+		verify(retryKafkaTemplate, times(3)).send(arg.capture());
+		assertEquals("request.queue.retry.0", arg.getAllValues().get(0).topic());
+		assertEquals("request.queue.retry.1", arg.getAllValues().get(1).topic());
+		assertEquals("request.queue.retry.2", arg.getAllValues().get(2).topic());
+		ProducerRecord<String, TraceableMessage<CommitReservationRequest>> record = arg.getAllValues().get(1);
+		assertEquals("2839420384902", record.key());
+		assertSame(message, record.value());
+		assertEquals("2", new String(record.headers().lastHeader(KafkaProducerDao.RETRY_ATTEMPT_HEADER).value(), StandardCharsets.UTF_8));
+		assertNotNull(record.headers().lastHeader(KafkaProducerDao.RETRY_DUE_HEADER));
+	}
+
+	@Test
+	public void test_produceRetry_deadLetter() {
+
+		//-Setup---------------
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setPayload(new CommitReservationRequest());
+
+		//-Execute----------------------------
+		kafkaDao.produceRetry(message, config.getKafkaRetryAttempts() + 1);
+
+		//-Verify----------------------------
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<ProducerRecord<String, TraceableMessage<CommitReservationRequest>>> arg = ArgumentCaptor.forClass(ProducerRecord.class);
+		verify(retryKafkaTemplate).send(arg.capture());
+		assertEquals("request.queue.dlt", arg.getValue().topic());
+		assertNull(arg.getValue().headers().lastHeader(KafkaProducerDao.RETRY_DUE_HEADER));
+	}
+
+	@Test
+	public void test_bufferUsage() {
+
+		//-Prepare---------------
+		Map<MetricName, Metric> producerMetrics = new HashMap<>();
+		producerMetrics.put(metricName("buffer-total-bytes"), metric(1000.0));
+		producerMetrics.put(metricName("buffer-available-bytes"), metric(250.0));
+		Metric waitRatio = metric(0.0);
+		producerMetrics.put(metricName("bufferpool-wait-ratio"), waitRatio);
+		doReturn(producerMetrics).when(commitKafkaTemplate).metrics();
+
+		//-Execute & Verify----------------------------
+		assertEquals(75.0, kafkaDao.bufferUsage(), 0.001);
+		// Sends blocked on max.block.ms count as a full buffer.
+		doReturn(0.2).when(waitRatio).metricValue();
+		assertEquals(100.0, kafkaDao.bufferUsage(), 0.001);
+	}
+
+	private MetricName metricName(String name) {
+		return new MetricName(name, "producer-metrics", "", Collections.emptyMap());
+	}
+
+	private Metric metric(double value) {
+		Metric metric = mock(Metric.class);
+		doReturn(value).when(metric).metricValue();
+		return metric;
+	}
+
 }
@@ -0,0 +1,102 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+class Unit_KafkaListenerConfig_consumerFactory {
+	ConfigProperties config = new ConfigProperties();
+	KafkaListenerConfig listenerConfig = new KafkaListenerConfig();
+
+	@BeforeEach
+	public void setup() {
+		config.setKafkaConsumerPropertiesPath("app-consumer-kafka.properties");
+		listenerConfig.config = config;
+	}
+
+	@Test
+	void test_consumerFactory_tuning() throws Exception {
+		//--Prepare--------------
+		config.setKafkaMaxPollRecords(200);
+		config.setKafkaFetchMinBytes(16384);
+		config.setKafkaFetchMaxWait(50);
+		config.setKafkaCooperativeRebalance(true);
+
+		//--Execute--------------
+		Map<String, Object> properties = listenerConfig.consumerFactory().getConfigurationProperties();
+
+		//--Verify--------------
+		assertEquals(200, properties.get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+		assertEquals(16384, properties.get(ConsumerConfig.FETCH_MIN_BYTES_CONFIG));
+		assertEquals(50, properties.get(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG));
+		assertEquals(Arrays.asList(CooperativeStickyAssignor.class.getName(), RangeAssignor.class.getName()),
+				properties.get(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG));
+		assertEquals("localhost:9092", properties.get(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG));
+	}
+
+	@Test
+	void test_consumerFactory_eagerByDefault() throws Exception {
+		//--Execute--------------
+		Map<String, Object> properties = listenerConfig.consumerFactory().getConfigurationProperties();
+
+		//--Verify--------------
+		assertFalse(properties.containsKey(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG));
+	}
+
+	@Test
+	void test_consumerFactory_retryDelayBelowPollInterval() throws Exception {
+		//--Prepare--------------
+		config.setKafkaRetryEnabled(true);
+		config.setKafkaRetryDelays(Arrays.asList(1000, 10000, 300000));
+
+		//--Execute--------------
+		// A tier delay as long as the consumer's default max.poll.interval.ms is refused at startup.
+		assertThrows(IllegalArgumentException.class, () -> listenerConfig.consumerFactory());
+
+		//--Verify--------------
+		config.setKafkaRetryDelays(Arrays.asList(1000, 10000, 60000));
+		assertNotNull(listenerConfig.consumerFactory());
+	}
+
+	@Test
+	void test_containerFactory_staticMembership() throws Exception {
+		//--Prepare--------------
+		config.setKafkaListenerConcurrency(4);
+		config.setKafkaGroupInstanceId("fulfillment-pod-1");
+
+		//--Execute--------------
+		ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> request =
+				listenerConfig.kafkaListenerContainerFactory().createContainer("commit.request.queue");
+		ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> retry =
+				listenerConfig.kafkaListenerContainerFactory().createContainer("commit.request.queue.retry.0");
+
+		//--Verify--------------
+		assertEquals(4, request.getConcurrency());
+		assertEquals("fulfillment-pod-1-commit.request.queue",
+				request.getContainerProperties().getKafkaConsumerProperties().getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG));
+		assertEquals("fulfillment-pod-1-commit.request.queue.retry.0",
+				retry.getContainerProperties().getKafkaConsumerProperties().getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG));
+	}
+
+	@Test
+	void test_containerFactory_dynamicMembership() throws Exception {
+		//--Execute--------------
+		ConcurrentMessageListenerContainer<String, TraceableMessage<CommitReservationRequest>> request =
+				listenerConfig.kafkaListenerContainerFactory().createContainer("commit.request.queue");
+
+		//--Verify--------------
+		assertEquals(1, request.getConcurrency());
+		assertNull(request.getContainerProperties().getKafkaConsumerProperties().getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG));
+	}
+}
@@ -0,0 +1,130 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import qslv.common.kafka.JacksonAvroDeserializer;
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+
+@EmbeddedKafka(partitions = 1, topics = { "commit.request.queue.retry.0" }, brokerProperties = {
+		"transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1" })
+class Unit_KafkaProducerConfig_retryKafkaTemplate {
+	private static String retry_topic = "commit.request.queue.retry.0";
+	ConfigProperties config = new ConfigProperties();
+	KafkaProducerDao kafkaDao = new KafkaProducerDao();
+	EmbeddedKafkaBroker embeddedKafka;
+	ProducerFactory<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitProducerFactory;
+	KafkaProducerConfig producerConfig = new KafkaProducerConfig() {
+		@Override
+		public Map<String, Object> producerConfig() {
+			return embeddedConfig();
+		}
+		// Stands in for the singleton the Spring configuration proxy hands out.
+		@Override
+		public ProducerFactory<String, TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> commitProducerFactory()
+				throws Exception {
+			if ( commitProducerFactory == null ) {
+				commitProducerFactory = super.commitProducerFactory();
+			}
+			return commitProducerFactory;
+		}
+	};
+
+	Unit_KafkaProducerConfig_retryKafkaTemplate(EmbeddedKafkaBroker embeddedKafka) {
+		this.embeddedKafka = embeddedKafka;
+	}
+
+	@BeforeEach
+	public void setup() {
+		config.setKafkaExactlyOnce(true);
+		config.setKafkaCommitRequestQueue("commit.request.queue");
+		producerConfig.config = config;
+		kafkaDao.setConfig(config);
+	}
+
+	@Test
+	void test_retryKafkaTemplate_abortedForwardInvisible() throws Exception {
+		//--Prepare--------------
+		KafkaTemplate<String, TraceableMessage<CommitReservationRequest>> retryKafkaTemplate = producerConfig.retryKafkaTemplate();
+		kafkaDao.setRetryKafkaTemplate(retryKafkaTemplate);
+		TransactionTemplate transaction = new TransactionTemplate(new KafkaTransactionManager<>(producerConfig.commitProducerFactory()));
+		TraceableMessage<CommitReservationRequest> aborted = setup_message("ABORTED");
+		TraceableMessage<CommitReservationRequest> committed = setup_message("COMMITTED");
+
+		//--Execute--------------
+		// As the listener container does: a transaction per poll, rolled back when the batch fails.
+		transaction.execute(status -> {
+			get(kafkaDao.produceRetry(aborted, 1));
+			status.setRollbackOnly();
+			return null;
+		});
+		transaction.execute(status -> get(kafkaDao.produceRetry(committed, 1)));
+
+		//--Verify--------------
+		try (Consumer<String, TraceableMessage<CommitReservationRequest>> consumer = buildConsumer()) {
+			embeddedKafka.consumeFromAnEmbeddedTopic(consumer, retry_topic);
+			ConsumerRecords<String, TraceableMessage<CommitReservationRequest>> records = KafkaTestUtils.getRecords(consumer, 5000L);
+			assertEquals(1, records.count());
+			assertEquals("COMMITTED", records.iterator().next().key());
+		}
+	}
+
+	private static Object get(java.util.concurrent.Future<?> future) {
+		try {
+			return future.get();
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private Map<String, Object> embeddedConfig() {
+		HashMap<String, Object> props = new HashMap<>();
+		props.put("bootstrap.servers", embeddedKafka.getBrokersAsString());
+		props.put("schema.registry.url", "http://localhost:8081");
+		return props;
+	}
+
+	private Consumer<String, TraceableMessage<CommitReservationRequest>> buildConsumer() {
+		Map<String, Object> configs = embeddedConfig();
+		configs.put(ConsumerConfig.GROUP_ID_CONFIG, "retry-reader");
+		configs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		configs.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+		JacksonAvroDeserializer<TraceableMessage<CommitReservationRequest>> jad = new JacksonAvroDeserializer<>();
+		jad.configure(configs);
+		return new DefaultKafkaConsumerFactory<>(configs, new StringDeserializer(), jad).createConsumer();
+	}
+
+	private TraceableMessage<CommitReservationRequest> setup_message(String accountNumber) {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setBusinessTaxonomyId("234234234234");
+		message.setCorrelationId("328942834234j23k4");
+		message.setMessageCreationTime(LocalDateTime.now());
+		message.setProducerAit("27834");
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber(accountNumber);
+		message.getPayload().setRequestUuid(UUID.randomUUID());
+		return message;
+	}
+}
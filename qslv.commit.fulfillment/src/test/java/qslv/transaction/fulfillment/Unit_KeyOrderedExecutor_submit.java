@@ -0,0 +1,83 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class Unit_KeyOrderedExecutor_submit {
+	ConfigProperties config = new ConfigProperties();
+	KeyOrderedExecutor executor = new KeyOrderedExecutor();
+
+	@BeforeEach
+	public void setup() {
+		config.setKafkaKeyedConcurrency(4);
+		config.setKafkaTimeout(1000);
+		executor.setConfig(config);
+		executor.init();
+	}
+
+	@AfterEach
+	public void teardown() throws InterruptedException {
+		executor.shutdown();
+	}
+
+	@Test
+	void test_submit_disabled() throws Exception {
+		KeyOrderedExecutor disabled = new KeyOrderedExecutor();
+		disabled.setConfig(new ConfigProperties());
+		disabled.init();
+		assertFalse(disabled.isEnabled());
+		assertTrue(executor.isEnabled());
+	}
+
+	@Test
+	void test_submit_keepsOrderPerKey() throws Exception {
+		//-Setup -----------
+		String[] keys = { "12345634579", "23874923749823", "2839420384902", "7823478239467", "98234234" };
+		Map<String, List<Integer>> executed = new ConcurrentHashMap<>();
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		List<Future<Integer>> futures = new ArrayList<>();
+
+		//-Execute----------------
+		for (int ii = 0; ii < 200; ii++) {
+			String key = keys[ii % keys.length];
+			int sequence = ii;
+			futures.add(executor.submit(key, () -> {
+				Thread.sleep(sequence % 3);
+				threads.add(Thread.currentThread().getName());
+				executed.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+				return sequence;
+			}));
+		}
+		for (Future<Integer> future : futures) {
+			future.get();
+		}
+
+		//-Verify----------------
+		Map<String, Integer> last = new HashMap<>();
+		executed.forEach((key, sequences) -> {
+			assertEquals(40, sequences.size());
+			for (Integer sequence : sequences) {
+				assertTrue(sequence > last.getOrDefault(key, -1));
+				last.put(key, sequence);
+			}
+		});
+		assertTrue(threads.size() > 1);
+	}
+
+	@Test
+	void test_submit_nullKey() throws Exception {
+		assertEquals("done", executor.submit(null, () -> "done").get());
+	}
+}
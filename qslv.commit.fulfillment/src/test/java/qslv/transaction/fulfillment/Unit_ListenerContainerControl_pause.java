@@ -0,0 +1,118 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+@ExtendWith(MockitoExtension.class)
+class Unit_ListenerContainerControl_pause {
+	ListenerContainerControl control = new ListenerContainerControl();
+	CircuitBreaker breaker = CircuitBreaker.ofDefaults("test");
+	AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+	ListenerDrain listenerDrain = new ListenerDrain();
+	@Mock
+	KafkaListenerEndpointRegistry registry;
+	@Mock
+	RetryListenerContainers retryListenerContainers;
+	@Mock
+	MessageListenerContainer requestContainer;
+	@Mock
+	MessageListenerContainer batchContainer;
+
+	@BeforeEach
+	public void setup() {
+		control.setRegistry(registry);
+		control.setRetryListenerContainers(retryListenerContainers);
+		control.setLaneListenerContainers(new LaneListenerContainers());
+		control.setCommitServiceBreaker(breaker);
+		control.setConcurrencyLimiter(limiter);
+		control.setListenerDrain(listenerDrain);
+		control.setBackpressureController(new BackpressureController());
+		ConfigProperties config = new ConfigProperties();
+		config.setRestLimitInitial(1);
+		config.setRestLimitMin(1);
+		limiter.setConfig(config);
+		limiter.init();
+		control.init();
+	}
+
+	@Test
+	void test_pause_breakerOpen() {
+		//--Prepare----------------------
+		doReturn(Arrays.asList(requestContainer, batchContainer)).when(registry).getListenerContainers();
+		doReturn(Collections.emptyList()).when(retryListenerContainers).getContainers();
+
+		//--Execute-----------------------
+		breaker.transitionToOpenState();
+
+		//--Verify------------------------
+		assertTrue(control.isPaused());
+		verify(requestContainer).pause();
+		verify(batchContainer).pause();
+
+		//--Execute-----------------------
+		breaker.transitionToHalfOpenState();
+
+		//--Verify------------------------
+		assertFalse(control.isPaused());
+		verify(requestContainer).resume();
+		verify(batchContainer).resume();
+	}
+
+	@Test
+	void test_pause_independentReasons() {
+		//--Prepare----------------------
+		doReturn(Collections.singletonList(requestContainer)).when(registry).getListenerContainers();
+		doReturn(Collections.emptyList()).when(retryListenerContainers).getContainers();
+
+		//--Execute-----------------------
+		control.pause("first");
+		control.pause("second");
+		control.resume("first");
+
+		//--Verify------------------------
+		assertTrue(control.isPaused());
+		verify(requestContainer, times(1)).pause();
+		verify(requestContainer, never()).resume();
+
+		//--Execute-----------------------
+		control.resume("second");
+
+		//--Verify------------------------
+		assertFalse(control.isPaused());
+		verify(requestContainer, times(1)).resume();
+	}
+
+	@Test
+	void test_pause_concurrencyLimit() {
+		//--Prepare----------------------
+		doReturn(Collections.singletonList(requestContainer)).when(registry).getListenerContainers();
+		doReturn(Collections.emptyList()).when(retryListenerContainers).getContainers();
+
+		//--Execute-----------------------
+		limiter.acquire();
+
+		//--Verify------------------------
+		assertTrue(control.isPaused());
+		verify(requestContainer).pause();
+
+		//--Execute-----------------------
+		limiter.release(1L, false);
+
+		//--Verify------------------------
+		assertFalse(control.isPaused());
+		verify(requestContainer).resume();
+	}
+}
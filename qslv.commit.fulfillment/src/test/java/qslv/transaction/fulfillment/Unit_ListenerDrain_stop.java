@@ -0,0 +1,81 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class Unit_ListenerDrain_stop {
+	ConfigProperties config = new ConfigProperties();
+	@Mock
+	Runnable drainListener;
+	@Mock
+	KafkaProducerDao kafkaDao;
+	ListenerDrain listenerDrain = new ListenerDrain();
+
+	@BeforeEach
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		config.setKafkaDrainTimeout(5000);
+		listenerDrain.setConfig(config);
+		listenerDrain.onDrain(drainListener);
+		listenerDrain.setKafkaDao(kafkaDao);
+		listenerDrain.start();
+	}
+
+	@Test
+	void test_stop_waitsForInFlight() throws Exception {
+		//--Prepare--------------
+		listenerDrain.begin();
+
+		//--Execute--------------
+		CompletableFuture<Void> stopped = CompletableFuture.runAsync(listenerDrain::stop);
+		Thread.sleep(200L);
+
+		//--Verify--------------
+		assertFalse(stopped.isDone());
+		assertTrue(listenerDrain.isDraining());
+		verify(drainListener).run();
+		verify(kafkaDao, never()).flush();
+
+		listenerDrain.end();
+		stopped.get(1, TimeUnit.SECONDS);
+		verify(kafkaDao).flush();
+		assertFalse(listenerDrain.isRunning());
+	}
+
+	@Test
+	void test_stop_timeout() {
+		//--Prepare--------------
+		config.setKafkaDrainTimeout(100);
+		listenerDrain.begin();
+
+		//--Execute--------------
+		long start = System.currentTimeMillis();
+		listenerDrain.stop();
+
+		//--Verify--------------
+		assertTrue(System.currentTimeMillis() - start >= 100L);
+		assertEquals(1, listenerDrain.getInFlight());
+		verify(kafkaDao).flush();
+	}
+
+	@Test
+	void test_stop_idle() {
+		//--Execute--------------
+		listenerDrain.stop();
+
+		//--Verify--------------
+		assertEquals(0, listenerDrain.getInFlight());
+		verify(kafkaDao).flush();
+	}
+}
@@ -0,0 +1,98 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+class Unit_MessageTraceLog_sample {
+	MessageTraceLog messageTrace = new MessageTraceLog();
+	ConfigProperties config = new ConfigProperties();
+	Logger traceLogger = (Logger) LoggerFactory.getLogger(MessageTraceLog.LOGGER);
+	ListAppender<ILoggingEvent> appender = new ListAppender<>();
+	Level level;
+
+	@BeforeEach
+	public void setup() {
+		messageTrace.setConfig(config);
+		appender.start();
+		traceLogger.addAppender(appender);
+		level = traceLogger.getLevel();
+		traceLogger.setLevel(Level.INFO);
+	}
+
+	@AfterEach
+	public void teardown() {
+		traceLogger.detachAppender(appender);
+		traceLogger.setLevel(level);
+	}
+
+	@Test
+	void test_sample_everyRecord() {
+		//--Prepare----------------------
+		config.setLogTraceSample(1);
+		ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> record = setup_record();
+
+		//--Execute-----------------------
+		messageTrace.sample(record);
+
+		//--Verify------------------------
+		assertEquals(1, appender.list.size());
+		String logged = appender.list.get(0).getFormattedMessage();
+		assertTrue(logged.contains("partition=2"));
+		assertTrue(logged.contains("offset=42"));
+		assertTrue(logged.contains("correlationId=" + record.value().getCorrelationId()));
+		assertTrue(logged.contains("accountNumber=12345678"));
+		assertFalse(logged.contains(record.value().getPayload().getTransactionMetaDataJson()));
+	}
+
+	@Test
+	void test_sample_disabled() {
+		//--Prepare----------------------
+		config.setLogTraceSample(0);
+
+		//--Execute-----------------------
+		for (int ii = 0; ii < 100; ii++) {
+			messageTrace.sample(setup_record());
+		}
+
+		//--Verify------------------------
+		assertTrue(appender.list.isEmpty());
+	}
+
+	@Test
+	void test_sample_oneInN() {
+		//--Prepare----------------------
+		config.setLogTraceSample(10);
+
+		//--Execute-----------------------
+		for (int ii = 0; ii < 10000; ii++) {
+			messageTrace.sample(setup_record());
+		}
+
+		//--Verify------------------------
+		assertTrue(appender.list.size() > 500);
+		assertTrue(appender.list.size() < 1500);
+	}
+
+	ConsumerRecord<String, TraceableMessage<CommitReservationRequest>> setup_record() {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setCorrelationId(UUID.randomUUID().toString());
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber("12345678");
+		message.getPayload().setTransactionMetaDataJson("{\"merchant\":\"not logged\"}");
+		return new ConsumerRecord<>("commit.request.queue", 2, 42L, "12345678", message);
+	}
+}
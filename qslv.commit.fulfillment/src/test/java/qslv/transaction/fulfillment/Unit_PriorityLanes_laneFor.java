@@ -0,0 +1,104 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+class Unit_PriorityLanes_laneFor {
+	PriorityLanes priorityLanes = new PriorityLanes();
+	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	public void setup() {
+		ConfigProperties.Lane bulk = new ConfigProperties.Lane();
+		bulk.setBusinessTaxonomyIds(Arrays.asList("BATCH-01", "BATCH-02"));
+		bulk.setRate(20);
+		ConfigProperties.Lane partner = new ConfigProperties.Lane();
+		partner.setProducerAits(Collections.singletonList("9999"));
+		partner.setBusinessTaxonomyIds(Collections.singletonList("BATCH-01"));
+		config.getKafkaLanes().put("bulk", bulk);
+		config.getKafkaLanes().put("partner", partner);
+		priorityLanes.setConfig(config);
+		priorityLanes.init();
+		priorityLanes.bindTo(meterRegistry);
+	}
+
+	@Test
+	void test_laneFor_disabled() {
+		//--Prepare--------------
+		PriorityLanes disabled = new PriorityLanes();
+		disabled.setConfig(new ConfigProperties());
+		disabled.init();
+
+		//--Execute & Verify--------------
+		assertFalse(disabled.isEnabled());
+		assertNull(disabled.laneFor(message("BATCH-01", "9999")));
+	}
+
+	@Test
+	void test_laneFor_match() {
+		//--Execute & Verify--------------
+		assertTrue(priorityLanes.isEnabled());
+		assertEquals("bulk", priorityLanes.laneFor(message("BATCH-02", "2345")));
+		assertEquals("partner", priorityLanes.laneFor(message("38923748273482", "9999")));
+		assertNull(priorityLanes.laneFor(message("38923748273482", "2345")));
+		// The first lane listing a taxonomy wins, and taxonomy is checked before producer.
+		assertEquals("bulk", priorityLanes.laneFor(message("BATCH-01", "9999")));
+		assertEquals(2.0, meterRegistry.get("qslv.fulfillment.lane.routed").tag("lane", "bulk").counter().count());
+		assertEquals(1.0, meterRegistry.get("qslv.fulfillment.lane.routed").tag("lane", "partner").counter().count());
+	}
+
+	@Test
+	void test_laneFor_rateLimit() {
+		//--Prepare--------------
+		// The first second's worth of permits is available at once.
+		for (int i = 0; i < 20; i++) {
+			priorityLanes.acquire("bulk");
+		}
+
+		//--Execute--------------
+		long start = System.nanoTime();
+		for (int i = 0; i < 4; i++) {
+			priorityLanes.acquire("bulk");
+		}
+		priorityLanes.acquire("partner");
+		long elapsed = (System.nanoTime() - start) / 1_000_000L;
+
+		//--Verify--------------
+		// Four more at 20 a second take about 200 ms, the partner lane is not limited.
+		assertTrue(elapsed >= 150L, Long.toString(elapsed));
+		assertTrue(elapsed < 1000L, Long.toString(elapsed));
+	}
+
+	@Test
+	void test_laneFor_maxPollRecords() {
+		//--Prepare--------------
+		ConfigProperties.Lane trickle = new ConfigProperties.Lane();
+		trickle.setRate(1);
+		trickle.setConcurrency(3);
+		config.getKafkaLanes().put("trickle", trickle);
+
+		//--Execute & Verify--------------
+		// A minute of permits per poll, shared by the lane's consumers and no more than the configured maximum.
+		assertEquals(20, priorityLanes.maxPollRecords("trickle"));
+		assertEquals(500, priorityLanes.maxPollRecords("bulk"));
+		assertEquals(500, priorityLanes.maxPollRecords("partner"));
+	}
+
+	private TraceableMessage<CommitReservationRequest> message(String businessTaxonomyId, String producerAit) {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setBusinessTaxonomyId(businessTaxonomyId);
+		message.setProducerAit(producerAit);
+		message.setPayload(new CommitReservationRequest());
+		return message;
+	}
+}
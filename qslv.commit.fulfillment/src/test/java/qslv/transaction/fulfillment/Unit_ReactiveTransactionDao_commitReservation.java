@@ -0,0 +1,183 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.response.CommitReservationResponse;
+import reactor.core.publisher.Flux;
+
+class Unit_ReactiveTransactionDao_commitReservation {
+	StubTransactionServer server;
+	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter();
+	ReactiveTransactionDao reactiveTransactionDao = new ReactiveTransactionDao();
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new StubTransactionServer().start();
+
+		config.setAitid("723842");
+		config.setCommitReservationUrl(server.getCommitReservationUrl());
+		config.setRestAttempts(3);
+		config.setRestBackoffDelay(10);
+		config.setRestBackoffDelayMax(50);
+		// The first call in the JVM pays for Netty start up.
+		config.setRestTimeout(5000);
+
+		TransactionDao transactionDao = new TransactionDao();
+		transactionDao.setConfig(config);
+		FulfillmentMetrics metrics = new FulfillmentMetrics();
+		metrics.setRegistry(meterRegistry);
+		concurrencyLimiter.setConfig(config);
+		concurrencyLimiter.init();
+
+		reactiveTransactionDao.setConfig(config);
+		reactiveTransactionDao.setCommitServiceWebClient(WebClient.create());
+		reactiveTransactionDao.setTransactionDao(transactionDao);
+		reactiveTransactionDao.setCommitServiceBreaker(CircuitBreaker.ofDefaults("test"));
+		reactiveTransactionDao.setConcurrencyLimiter(concurrencyLimiter);
+		reactiveTransactionDao.setMetrics(metrics);
+		RetryBudget retryBudget = new RetryBudget();
+		retryBudget.setConfig(config);
+		retryBudget.init();
+		reactiveTransactionDao.setRetryBudget(retryBudget);
+	}
+
+	@AfterEach
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	void test_commitReservation_success() {
+		//-Setup -----------
+		TraceableMessage<CommitReservationRequest> message = setup_message();
+
+		//-Execute----------------
+		CommitReservationResponse response = reactiveTransactionDao.commitReservation(message, message.getPayload()).block();
+
+		//-Verify----------------
+		assertEquals(CommitReservationResponse.SUCCESS, response.getStatus());
+		assertEquals(message.getPayload().getAccountNumber(), response.getResource().getAccountNumber());
+		assertEquals(1, server.getSingleCalls());
+		assertEquals(1L, meterRegistry.get("qslv.fulfillment.rest").tag("outcome", FulfillmentMetrics.SUCCESS).timer().count());
+	}
+
+	@Test
+	void test_commitReservation_manyInFlight() {
+		//-Setup -----------
+		server.setLatency(() -> 200L);
+		List<TraceableMessage<CommitReservationRequest>> messages = new ArrayList<>();
+		for (int ii = 0; ii < 50; ii++) {
+			messages.add(setup_message());
+		}
+
+		//-Execute----------------
+		long start = System.currentTimeMillis();
+		List<CommitReservationResponse> responses = Flux.fromIterable(messages)
+				.flatMap(message -> reactiveTransactionDao.commitReservation(message, message.getPayload()))
+				.collectList().block();
+		long elapsed = System.currentTimeMillis() - start;
+
+		//-Verify----------------
+		assertEquals(50, responses.size());
+		assertEquals(50, server.getSingleCalls());
+		assertTrue(elapsed < 5000, "50 calls of 200 ms should overlap, took " + elapsed + " ms");
+	}
+
+	@Test
+	void test_commitReservation_serverErrorRetried() {
+		//-Setup -----------
+		server.setFailWithStatus(503);
+		TraceableMessage<CommitReservationRequest> message = setup_message();
+
+		//-Execute----------------
+		// Like the RestTemplate path, an exhausted 503 is still transient.
+		TransientDataAccessResourceException ex = assertThrows(TransientDataAccessResourceException.class, () -> {
+			reactiveTransactionDao.commitReservation(message, message.getPayload()).block();
+		});
+		assertTrue(ex.getCause() instanceof HttpServerErrorException);
+
+		//-Verify----------------
+		assertEquals(3, server.getSingleCalls());
+		assertEquals(2.0, meterRegistry.get("qslv.fulfillment.rest.retries").counter().count());
+		assertEquals(1L, meterRegistry.get("qslv.fulfillment.rest").tag("outcome", FulfillmentMetrics.FAILURE).timer().count());
+	}
+
+	@Test
+	void test_commitReservation_rejected() {
+		//-Setup -----------
+		server.setRejectWhen(request -> true);
+		TraceableMessage<CommitReservationRequest> message = setup_message();
+
+		//-Execute----------------
+		assertThrows(NonTransientDataAccessResourceException.class, () -> {
+			reactiveTransactionDao.commitReservation(message, message.getPayload()).block();
+		});
+
+		//-Verify----------------
+		assertEquals(1, server.getSingleCalls());
+	}
+
+	@Test
+	void test_commitReservation_concurrencyLimit() throws InterruptedException {
+		//-Setup -----------
+		config.setRestLimitEnabled(true);
+		config.setRestLimitInitial(2);
+		config.setRestLimitMin(2);
+		config.setRestLimitLatency(10000);
+		config.setRestConnectionRequestTimeout(5000);
+		concurrencyLimiter.init();
+		server.setLatency(() -> 50L);
+		List<TraceableMessage<CommitReservationRequest>> messages = new ArrayList<>();
+		for (int ii = 0; ii < 6; ii++) {
+			messages.add(setup_message());
+		}
+
+		//-Execute----------------
+		List<CommitReservationResponse> responses = Flux.fromIterable(messages)
+				.flatMap(message -> reactiveTransactionDao.commitReservation(message, message.getPayload()))
+				.collectList().block(Duration.ofSeconds(10));
+
+		//-Verify----------------
+		assertEquals(6, responses.size());
+		// Slots are released once the result has been handed on.
+		for (int ii = 0; ii < 100 && concurrencyLimiter.getInFlight() > 0; ii++) {
+			Thread.sleep(10L);
+		}
+		assertEquals(0, concurrencyLimiter.getInFlight());
+	}
+
+	TraceableMessage<CommitReservationRequest> setup_message() {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setBusinessTaxonomyId("jskdfjsdjfls");
+		message.setCorrelationId("sdjfsjdlfjslkdfj");
+		message.setMessageCreationTime(LocalDateTime.now());
+		message.setProducerAit("234234");
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber(UUID.randomUUID().toString().substring(0, 12));
+		message.getPayload().setReservationUuid(UUID.randomUUID());
+		message.getPayload().setRequestUuid(UUID.randomUUID());
+		message.getPayload().setTransactionMetaDataJson("{}");
+		return message;
+	}
+}
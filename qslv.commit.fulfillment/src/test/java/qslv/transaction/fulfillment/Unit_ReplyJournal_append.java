@@ -0,0 +1,175 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import qslv.transaction.resource.TransactionResource;
+import qslv.transaction.response.CommitReservationResponse;
+
+class Unit_ReplyJournal_append {
+	@TempDir
+	Path directory;
+	ConfigProperties config = new ConfigProperties();
+
+	@BeforeEach
+	public void setup() {
+		config.setReplyJournalPath(directory.toString());
+		config.setReplyJournalSegmentSize(4096);
+	}
+
+	@Test
+	void test_append_disabled() throws IOException {
+		//--Prepare--------------
+		config.setReplyJournalPath("");
+		ReplyJournal journal = journal();
+		UUID requestUuid = UUID.randomUUID();
+
+		//--Execute--------------
+		journal.append(requestUuid, setup_response());
+
+		//--Verify--------------
+		assertFalse(journal.isEnabled());
+		assertNull(journal.get(requestUuid));
+		assertEquals(0, segments());
+	}
+
+	@Test
+	void test_append_recovered() throws IOException {
+		//--Prepare--------------
+		ReplyJournal journal = journal();
+		UUID pending = UUID.randomUUID();
+		UUID acknowledged = UUID.randomUUID();
+		CommitReservationResponse response = setup_response();
+
+		//--Execute--------------
+		journal.append(pending, response);
+		journal.append(acknowledged, setup_response());
+		journal.acknowledge(acknowledged);
+		journal.close();
+		ReplyJournal restarted = journal();
+
+		//--Verify--------------
+		assertEquals(1, restarted.getPending());
+		assertNull(restarted.get(acknowledged));
+		CommitReservationResponse recovered = restarted.get(pending);
+		assertNotNull(recovered);
+		assertEquals(response.getStatus(), recovered.getStatus());
+		assertEquals(response.getResource().getAccountNumber(), recovered.getResource().getAccountNumber());
+	}
+
+	@Test
+	void test_append_compactedOnRoll() throws IOException {
+		//--Prepare--------------
+		ReplyJournal journal = journal();
+		UUID pending = UUID.randomUUID();
+		journal.append(pending, setup_response());
+
+		//--Execute--------------
+		// Enough acknowledged traffic to fill several segments.
+		for (int i = 0; i < 100; i++) {
+			UUID requestUuid = UUID.randomUUID();
+			journal.append(requestUuid, setup_response());
+			journal.acknowledge(requestUuid);
+		}
+		journal.close();
+
+		//--Verify--------------
+		assertEquals(1, segments());
+		ReplyJournal restarted = journal();
+		assertEquals(1, restarted.getPending());
+		assertNotNull(restarted.get(pending));
+	}
+
+	@Test
+	void test_append_acknowledgedAfterClose() throws IOException {
+		//--Prepare--------------
+		ReplyJournal journal = journal();
+		UUID acknowledged = UUID.randomUUID();
+		UUID late = UUID.randomUUID();
+		journal.append(acknowledged, setup_response());
+		journal.append(late, setup_response());
+
+		//--Execute--------------
+		journal.acknowledge(acknowledged);
+		journal.close();
+		// A producer callback can still fire after shutdown, its acknowledgement is lost.
+		journal.acknowledge(late);
+		ReplyJournal restarted = journal();
+
+		//--Verify--------------
+		assertEquals(0, journal.getPending());
+		assertNull(restarted.get(acknowledged));
+		assertNotNull(restarted.get(late));
+	}
+
+	@Test
+	void test_append_tornRecord() throws IOException {
+		//--Prepare--------------
+		ReplyJournal journal = journal();
+		UUID first = UUID.randomUUID();
+		UUID torn = UUID.randomUUID();
+		journal.append(first, setup_response());
+		journal.append(torn, setup_response());
+		journal.close();
+		// Damage the last byte of the second record, as a crash part way through the write would.
+		Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.findFirst().get();
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			int length = file.readInt();
+			file.seek(8 + length);
+			int secondLength = file.readInt();
+			long last = 8 + length + 8 + secondLength - 1;
+			file.seek(last);
+			byte value = file.readByte();
+			file.seek(last);
+			file.writeByte(value + 1);
+		}
+
+		//--Execute--------------
+		ReplyJournal restarted = journal();
+		UUID next = UUID.randomUUID();
+		restarted.append(next, setup_response());
+		restarted.close();
+
+		//--Verify--------------
+		assertNotNull(restarted.get(first));
+		assertNull(restarted.get(torn));
+		ReplyJournal again = journal();
+		assertEquals(2, again.getPending());
+		assertNotNull(again.get(next));
+	}
+
+	private ReplyJournal journal() throws IOException {
+		ReplyJournal journal = new ReplyJournal();
+		journal.setConfig(config);
+		journal.init();
+		return journal;
+	}
+
+	private long segments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	private CommitReservationResponse setup_response() {
+		CommitReservationResponse response = new CommitReservationResponse();
+		response.setStatus(CommitReservationResponse.SUCCESS);
+		TransactionResource resource = new TransactionResource();
+		resource.setAccountNumber("23874923749823");
+		response.setResource(resource);
+		return response;
+	}
+}
@@ -0,0 +1,147 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class Unit_RequestHedger_execute {
+	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	RequestHedger requestHedger = new RequestHedger();
+
+	@BeforeEach
+	public void setup() {
+		config.setRestHedgeEnabled(true);
+		config.setRestHedgeDelayMin(20);
+		config.setRestHedgeBudget(10);
+		requestHedger.setConfig(config);
+		requestHedger.setRegistry(meterRegistry);
+		requestHedger.init();
+	}
+
+	@AfterEach
+	public void shutdown() {
+		requestHedger.shutdown();
+	}
+
+	@Test
+	void test_execute_fastNoHedge() {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		String result = requestHedger.execute(() -> "attempt-" + attempts.incrementAndGet());
+
+		//--Verify--------------
+		assertEquals("attempt-1", result);
+		assertEquals(1, attempts.get());
+		assertTrue(meterRegistry.find("qslv.rest.hedges").counters().isEmpty());
+	}
+
+	@Test
+	void test_execute_hedgeWins() throws Exception {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch slow = new CountDownLatch(1);
+
+		//--Execute--------------
+		long start = System.currentTimeMillis();
+		String result = requestHedger.execute(() -> {
+			int attempt = attempts.incrementAndGet();
+			if ( attempt == 1 ) {
+				await(slow);
+			}
+			return "attempt-" + attempt;
+		});
+		long elapsed = System.currentTimeMillis() - start;
+		slow.countDown();
+
+		//--Verify--------------
+		assertEquals("attempt-2", result);
+		assertTrue(elapsed < 1000L);
+		assertEquals(1.0, meterRegistry.get("qslv.rest.hedges").tag("outcome", "sent").counter().count());
+		// Counted by the hedge thread once it has handed over the answer.
+		for (int i = 0; i < 100 && meterRegistry.find("qslv.rest.hedges").tag("outcome", "won").counter() == null; i++) {
+			sleep(10L);
+		}
+		assertEquals(1.0, meterRegistry.get("qslv.rest.hedges").tag("outcome", "won").counter().count());
+	}
+
+	@Test
+	void test_execute_budgetExhausted() {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		for (int i = 0; i < 15; i++) {
+			requestHedger.execute(() -> {
+				attempts.incrementAndGet();
+				// Well past the 20 ms hedge delay, so every call reaches the budget check, and all 15 inside the
+				// second before the delay is recomputed from the attempt latencies.
+				sleep(50L);
+				return "slow";
+			});
+		}
+
+		//--Verify--------------
+		// Ten saved hedges plus one earned by 15 calls at 10 percent.
+		assertEquals(11.0, meterRegistry.get("qslv.rest.hedges").tag("outcome", "sent").counter().count());
+		assertEquals(4.0, meterRegistry.get("qslv.rest.hedges").tag("outcome", "denied").counter().count());
+	}
+
+	@Test
+	void test_execute_bothFail() {
+		//--Prepare--------------
+		AtomicInteger attempts = new AtomicInteger();
+
+		//--Execute--------------
+		ResourceAccessException ex = assertThrows(ResourceAccessException.class, () -> requestHedger.execute(() -> {
+			int attempt = attempts.incrementAndGet();
+			sleep(attempt == 1 ? 60L : 10L);
+			throw new ResourceAccessException("attempt-" + attempt);
+		}));
+
+		//--Verify--------------
+		// The hedge failing first leaves the primary to answer.
+		assertEquals("attempt-1", ex.getMessage());
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	void test_execute_disabled() {
+		//--Prepare--------------
+		config.setRestHedgeEnabled(false);
+		Thread caller = Thread.currentThread();
+
+		//--Execute--------------
+		Thread ran = requestHedger.execute(Thread::currentThread);
+
+		//--Verify--------------
+		assertSame(caller, ran);
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
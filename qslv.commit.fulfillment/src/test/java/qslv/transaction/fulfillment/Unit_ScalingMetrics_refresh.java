@@ -0,0 +1,173 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+@ExtendWith(MockitoExtension.class)
+class Unit_ScalingMetrics_refresh {
+	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	@Mock
+	Admin admin;
+	@Mock
+	ConsumerFactory<String, TraceableMessage<CommitReservationRequest>> consumerFactory;
+	@Mock
+	ListConsumerGroupOffsetsResult groupOffsets;
+	@Mock
+	ListOffsetsResult endOffsets;
+	ListenerDrain listenerDrain = new ListenerDrain();
+	ScalingMetrics scalingMetrics = new ScalingMetrics();
+
+	TopicPartition partition0 = new TopicPartition("commit.request.queue", 0);
+	TopicPartition partition1 = new TopicPartition("commit.request.queue", 1);
+	TopicPartition retry0 = new TopicPartition("commit.request.queue.retry.0", 0);
+	TopicPartition lane0 = new TopicPartition("commit.request.queue.lane.bulk", 0);
+	TopicPartition reply0 = new TopicPartition("commit.reply.queue", 0);
+
+	@BeforeEach
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		config.setKafkaCommitRequestQueue("commit.request.queue");
+		scalingMetrics.setConfig(config);
+		scalingMetrics.setConsumerFactory(consumerFactory);
+		scalingMetrics.setListenerDrain(listenerDrain);
+		KafkaProducerDao kafkaDao = new KafkaProducerDao();
+		kafkaDao.setConfig(config);
+		scalingMetrics.setKafkaDao(kafkaDao);
+		scalingMetrics.setAdmin(admin);
+		scalingMetrics.bindTo(registry);
+	}
+
+	@Test
+	void test_refresh_lag() {
+		//--Prepare--------------
+		setupGroup();
+		Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+		committed.put(partition0, new OffsetAndMetadata(100L));
+		committed.put(partition1, new OffsetAndMetadata(250L));
+		committed.put(retry0, new OffsetAndMetadata(7L));
+		doReturn(groupOffsets).when(admin).listConsumerGroupOffsets("qslv.fullfillment.client");
+		doReturn(future(committed)).when(groupOffsets).partitionsToOffsetAndMetadata();
+
+		Map<TopicPartition, ListOffsetsResultInfo> ends = new HashMap<>();
+		ends.put(partition0, endOffset(140L));
+		ends.put(partition1, endOffset(250L));
+		ends.put(retry0, endOffset(10L));
+		doReturn(endOffsets).when(admin).listOffsets(anyMap());
+		doReturn(future(ends)).when(endOffsets).all();
+
+		//--Execute--------------
+		scalingMetrics.refresh();
+
+		//--Verify--------------
+		assertEquals(40L, scalingMetrics.getLag().get(partition0));
+		assertEquals(0L, scalingMetrics.getLag().get(partition1));
+		assertEquals(3L, scalingMetrics.getLag().get(retry0));
+		assertEquals(43L, scalingMetrics.getTotalLag());
+		assertEquals(40.0, registry.get("qslv.fulfillment.lag").tags("topic", "commit.request.queue", "partition", "0").gauge().value());
+		assertEquals(3.0, registry.get("qslv.fulfillment.lag").tags("topic", "commit.request.queue.retry.0").gauge().value());
+		assertEquals(43.0, registry.get("qslv.fulfillment.lag.total").gauge().value());
+		assertEquals(43L, scalingMetrics.scaling().get("totalLag"));
+	}
+
+	@Test
+	void test_refresh_laneLag() {
+		//--Prepare--------------
+		config.getKafkaLanes().put("bulk", new ConfigProperties.Lane());
+		setupGroup();
+		Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+		committed.put(partition0, new OffsetAndMetadata(100L));
+		committed.put(lane0, new OffsetAndMetadata(1000L));
+		committed.put(reply0, new OffsetAndMetadata(5L));
+		doReturn(groupOffsets).when(admin).listConsumerGroupOffsets("qslv.fullfillment.client");
+		doReturn(future(committed)).when(groupOffsets).partitionsToOffsetAndMetadata();
+
+		Map<TopicPartition, ListOffsetsResultInfo> ends = new HashMap<>();
+		ends.put(partition0, endOffset(100L));
+		ends.put(lane0, endOffset(1600L));
+		doReturn(endOffsets).when(admin).listOffsets(anyMap());
+		doReturn(future(ends)).when(endOffsets).all();
+
+		//--Execute--------------
+		scalingMetrics.refresh();
+
+		//--Verify--------------
+		// A bulk flood moved to its lane still counts, topics the service does not consume from are left out.
+		assertEquals(0L, scalingMetrics.getLag().get(partition0));
+		assertEquals(600L, scalingMetrics.getLag().get(lane0));
+		assertFalse(scalingMetrics.getLag().containsKey(reply0));
+		assertEquals(600L, scalingMetrics.getTotalLag());
+		assertEquals(600.0, registry.get("qslv.fulfillment.lag").tags("topic", "commit.request.queue.lane.bulk").gauge().value());
+	}
+
+	@Test
+	void test_refresh_brokerDown() {
+		//--Prepare--------------
+		setupGroup();
+		KafkaFutureImpl<Map<TopicPartition, OffsetAndMetadata>> failed = new KafkaFutureImpl<>();
+		failed.completeExceptionally(new org.apache.kafka.common.errors.TimeoutException("down"));
+		doReturn(groupOffsets).when(admin).listConsumerGroupOffsets(anyString());
+		doReturn(failed).when(groupOffsets).partitionsToOffsetAndMetadata();
+
+		//--Execute--------------
+		scalingMetrics.refresh();
+
+		//--Verify--------------
+		assertEquals(0L, scalingMetrics.getTotalLag());
+		verify(admin, never()).listOffsets(anyMap());
+	}
+
+	@Test
+	void test_recordProcessed() {
+		//--Execute--------------
+		scalingMetrics.recordProcessed(1, 10_000_000L);
+		scalingMetrics.recordProcessed(10, 10_000_000L);
+
+		//--Verify--------------
+		assertEquals(9.1, scalingMetrics.getProcessingTime(), 0.0001);
+		assertEquals(9.1, scalingMetrics.scaling().get("processingTimeMs"));
+		assertEquals(0, scalingMetrics.scaling().get("inFlight"));
+	}
+
+	private void setupGroup() {
+		Map<String, Object> consumerConfig = new HashMap<>();
+		consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, "qslv.fullfillment.client");
+		doReturn(consumerConfig).when(consumerFactory).getConfigurationProperties();
+	}
+
+	private ListOffsetsResultInfo endOffset(long offset) {
+		ListOffsetsResultInfo info = mock(ListOffsetsResultInfo.class);
+		doReturn(offset).when(info).offset();
+		return info;
+	}
+
+	private <T> KafkaFutureImpl<T> future(T value) {
+		KafkaFutureImpl<T> future = new KafkaFutureImpl<>();
+		future.complete(value);
+		return future;
+	}
+}
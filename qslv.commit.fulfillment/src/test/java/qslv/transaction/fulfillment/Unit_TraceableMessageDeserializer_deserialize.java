@@ -0,0 +1,74 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import qslv.common.kafka.JacksonAvroSerializer;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+
+class Unit_TraceableMessageDeserializer_deserialize {
+	private static final String TOPIC = "commit.request.queue";
+	JacksonAvroSerializer<TraceableMessage<CommitReservationRequest>> shared = new JacksonAvroSerializer<>();
+	TraceableMessageDeserializer<TraceableMessage<CommitReservationRequest>> deserializer = 
+			new TraceableMessageDeserializer<>(MessageTypes.COMMIT_REQUEST);
+
+	@BeforeEach
+	public void setup() {
+		Map<String, Object> config = new HashMap<>();
+		config.put("schema.registry.url", "http://localhost:8081");
+		shared.configure(config, false);
+	}
+
+	@Test
+	void test_deserialize_fromShared() {
+		//--Prepare--------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		byte[] bytes = shared.serialize(TOPIC, request);
+
+		//--Execute--------------
+		TraceableMessage<CommitReservationRequest> read = deserializer.deserialize(TOPIC, bytes);
+
+		//--Verify--------------
+		assertEquals(request.getCorrelationId(), read.getCorrelationId());
+		assertEquals(request.getProducerAit(), read.getProducerAit());
+		assertEquals(request.getBusinessTaxonomyId(), read.getBusinessTaxonomyId());
+		assertEquals(request.getMessageCreationTime(), read.getMessageCreationTime());
+		assertEquals(request.getPayload().getAccountNumber(), read.getPayload().getAccountNumber());
+		assertEquals(request.getPayload().getRequestUuid(), read.getPayload().getRequestUuid());
+		assertEquals(request.getPayload().getReservationUuid(), read.getPayload().getReservationUuid());
+		assertEquals(request.getPayload().getTransactionMetaDataJson(), read.getPayload().getTransactionMetaDataJson());
+	}
+
+	@Test
+	void test_deserialize_null() {
+		assertNull(deserializer.deserialize(TOPIC, null));
+	}
+
+	@Test
+	void test_deserialize_malformed() {
+		assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, "{".getBytes()));
+	}
+
+	private TraceableMessage<CommitReservationRequest> setup_request() {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setBusinessTaxonomyId("234234234234");
+		message.setCorrelationId("328942834234j23k4");
+		message.setMessageCreationTime(LocalDateTime.now());
+		message.setProducerAit("27834");
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber("23874923749823");
+		message.getPayload().setRequestUuid(UUID.randomUUID());
+		message.getPayload().setReservationUuid(UUID.randomUUID());
+		message.getPayload().setTransactionMetaDataJson("{}");
+		return message;
+	}
+}
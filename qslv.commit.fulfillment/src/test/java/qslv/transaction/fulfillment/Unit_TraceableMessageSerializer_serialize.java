@@ -0,0 +1,125 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import qslv.common.kafka.JacksonAvroSerializer;
+import qslv.common.kafka.ResponseMessage;
+import qslv.common.kafka.TraceableMessage;
+import qslv.transaction.request.CommitReservationRequest;
+import qslv.transaction.resource.TransactionResource;
+import qslv.transaction.response.CommitReservationResponse;
+
+class Unit_TraceableMessageSerializer_serialize {
+	private static final String TOPIC = "commit.reply.queue";
+	JacksonAvroSerializer<Object> shared = new JacksonAvroSerializer<>();
+	TraceableMessageSerializer<TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>> replySerializer =
+			new TraceableMessageSerializer<>(MessageTypes.COMMIT_REPLY, MessageTypes.COMMIT_REQUEST);
+	TraceableMessageSerializer<TraceableMessage<CommitReservationRequest>> requestSerializer =
+			new TraceableMessageSerializer<>(MessageTypes.COMMIT_REQUEST);
+
+	@BeforeEach
+	public void setup() {
+		Map<String, Object> config = new HashMap<>();
+		config.put("schema.registry.url", "http://localhost:8081");
+		shared.configure(config, false);
+	}
+
+	@Test
+	void test_serialize_replyMatchesShared() {
+		//--Prepare--------------
+		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> reply = setup_reply();
+
+		//--Execute--------------
+		byte[] bytes = replySerializer.serialize(TOPIC, reply);
+
+		//--Verify--------------
+		assertArrayEquals(shared.serialize(TOPIC, reply), bytes);
+	}
+
+	@Test
+	void test_serialize_errorReplyMatchesShared() {
+		//--Prepare--------------
+		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> reply = setup_reply();
+		reply.getPayload().setResponse(null);
+		reply.getPayload().setStatus(ResponseMessage.INTERNAL_ERROR);
+		reply.getPayload().setErrorMessage("Unexpected return from CommitReservation Service.");
+
+		//--Execute--------------
+		byte[] bytes = replySerializer.serialize(TOPIC, reply);
+
+		//--Verify--------------
+		assertArrayEquals(shared.serialize(TOPIC, reply), bytes);
+	}
+
+	@Test
+	void test_serialize_requestMatchesShared() {
+		//--Prepare--------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+
+		//--Execute--------------
+		byte[] bytes = requestSerializer.serialize(TOPIC, request);
+
+		//--Verify--------------
+		assertArrayEquals(shared.serialize(TOPIC, request), bytes);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	void test_serialize_forwardThroughReplySerializer() {
+		//--Prepare--------------
+		// In exactly-once mode retry and lane forwards go through the reply producer.
+		TraceableMessage request = setup_request();
+
+		//--Execute--------------
+		byte[] bytes = replySerializer.serialize(TOPIC, (TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>>) request);
+
+		//--Verify--------------
+		assertArrayEquals(shared.serialize(TOPIC, request), bytes);
+	}
+
+	@Test
+	void test_serialize_noPayloadMatchesShared() {
+		//--Prepare--------------
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		request.setPayload(null);
+
+		//--Execute--------------
+		byte[] bytes = requestSerializer.serialize(TOPIC, request);
+
+		//--Verify--------------
+		assertArrayEquals(shared.serialize(TOPIC, request), bytes);
+	}
+
+	private TraceableMessage<CommitReservationRequest> setup_request() {
+		TraceableMessage<CommitReservationRequest> message = new TraceableMessage<>();
+		message.setBusinessTaxonomyId("234234234234");
+		message.setCorrelationId("328942834234j23k4");
+		message.setMessageCreationTime(LocalDateTime.now());
+		message.setProducerAit("27834");
+		message.setPayload(new CommitReservationRequest());
+		message.getPayload().setAccountNumber("23874923749823");
+		message.getPayload().setRequestUuid(UUID.randomUUID());
+		message.getPayload().setReservationUuid(UUID.randomUUID());
+		message.getPayload().setTransactionMetaDataJson("{\"merchant\":\"unit\"}");
+		return message;
+	}
+
+	private TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> setup_reply() {
+		TraceableMessage<CommitReservationRequest> request = setup_request();
+		TraceableMessage<ResponseMessage<CommitReservationRequest,CommitReservationResponse>> reply = 
+				new TraceableMessage<>(request, new ResponseMessage<CommitReservationRequest,CommitReservationResponse>(request.getPayload()));
+		reply.setMessageCompletionTime(LocalDateTime.now());
+		reply.getPayload().setResponse(new CommitReservationResponse(CommitReservationResponse.SUCCESS, new TransactionResource()));
+		reply.getPayload().getResponse().getResource().setAccountNumber("23874923749823");
+		reply.getPayload().getResponse().getResource().setDebitCardNumber("7823478239467");
+		return reply;
+	}
+}
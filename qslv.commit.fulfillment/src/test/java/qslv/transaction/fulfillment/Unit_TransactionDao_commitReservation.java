@@ -23,6 +23,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.client.ResourceAccessException;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import qslv.common.TimedResponse;
 import qslv.common.kafka.TraceableMessage;
 import qslv.transaction.request.CommitReservationRequest;
@@ -37,6 +41,8 @@ class Unit_TransactionDao_commitReservation {
 	RestTemplateProxy restTemplateProxy;
 	
 	ConfigProperties config = new ConfigProperties();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	FulfillmentMetrics metrics = new FulfillmentMetrics();
 	TransactionDao transactionDao = new TransactionDao();
 	RetryTemplate retryTemplate = new RetryTemplate() ;
 	
@@ -49,6 +55,14 @@ class Unit_TransactionDao_commitReservation {
 		config.setAitid("723842");
 		config.setCommitReservationUrl("http://localhost:9091/CommitTransaction");
 		transactionDao.setConfig(config);
+		AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter();
+		concurrencyLimiter.setConfig(config);
+		transactionDao.setConcurrencyLimiter(concurrencyLimiter);
+		metrics.setRegistry(meterRegistry);
+		transactionDao.setMetrics(metrics);
+		RequestHedger requestHedger = new RequestHedger();
+		requestHedger.setConfig(config);
+		transactionDao.setRequestHedger(requestHedger);
 	}
 	
 	@BeforeEach
@@ -146,6 +160,7 @@ class Unit_TransactionDao_commitReservation {
 
 		//-Verify----------------
 		assertSame(response.getBody().getPayload(), callresult);
+		assertEquals(2.0, meterRegistry.get("qslv.fulfillment.rest.retries").counter().count());
 	}
 
 	@Test
@@ -186,4 +201,32 @@ class Unit_TransactionDao_commitReservation {
 		});
 
 	}
+
+	@Test
+	void test_commitReservation_breakerOpens() {
+		//-Setup -----------
+		TraceableMessage<CommitReservationRequest> message = setup_traceable_message();
+		config.setRestBreakerEnabled(true);
+		transactionDao.setCommitServiceBreaker(CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+				.slidingWindowSize(2).minimumNumberOfCalls(2).recordExceptions(ResourceAccessException.class).build()));
+
+		//-Prepare----------------
+		doThrow(new ResourceAccessException("message", new SocketTimeoutException()) )
+		.when(restTemplateProxy).exchange(anyString(), eq(HttpMethod.POST), 
+			ArgumentMatchers.<HttpEntity<TraceableMessage<CommitReservationRequest>>>any(), 
+			ArgumentMatchers.<ParameterizedTypeReference<TimedResponse<CommitReservationResponse>>>any());
+
+		//-Execute----------------
+		for (int ii = 0; ii < 3; ii++) {
+			assertThrows(TransientDataAccessResourceException.class, () -> {
+				transactionDao.commitReservation(message, message.getPayload());
+			});
+		}
+
+		//-Verify----------------
+		// two calls exhaust their retries and open the breaker, the third is not attempted
+		verify(restTemplateProxy, times(6)).exchange(anyString(), eq(HttpMethod.POST), 
+			ArgumentMatchers.<HttpEntity<TraceableMessage<CommitReservationRequest>>>any(), 
+			ArgumentMatchers.<ParameterizedTypeReference<TimedResponse<CommitReservationResponse>>>any());
+	}
 }
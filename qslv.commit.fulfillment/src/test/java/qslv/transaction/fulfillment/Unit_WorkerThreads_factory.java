@@ -0,0 +1,44 @@
+package qslv.transaction.fulfillment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.jupiter.api.Test;
+
+class Unit_WorkerThreads_factory {
+
+	@Test
+	void test_factory_platform() {
+		//--Execute--------------
+		ThreadFactory factory = WorkerThreads.factory("test-worker-", false);
+		Thread first = factory.newThread(() -> {});
+		Thread second = factory.newThread(() -> {});
+
+		//--Verify--------------
+		assertEquals("test-worker-0", first.getName());
+		assertEquals("test-worker-1", second.getName());
+		assertTrue(first.isDaemon());
+		assertFalse(isVirtual(first));
+	}
+
+	@Test
+	void test_factory_virtual() throws Exception {
+		//--Execute--------------
+		ThreadFactory factory = WorkerThreads.factory("test-worker-", true);
+		Thread thread = factory.newThread(() -> {});
+
+		//--Verify--------------
+		// Falls back to platform threads on a JDK without virtual threads.
+		assertEquals("test-worker-0", thread.getName());
+		assertEquals(WorkerThreads.isVirtualAvailable(), isVirtual(thread));
+	}
+
+	private boolean isVirtual(Thread thread) {
+		try {
+			return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (ReflectiveOperationException ex) {
+			return false;
+		}
+	}
+}